@@ -1,14 +1,24 @@
 package xiaozhi.common.aspect;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import xiaozhi.common.exception.ErrorCode;
 import xiaozhi.common.exception.RenException;
+import xiaozhi.common.redis.RedisCircuitBreaker;
+import xiaozhi.common.redis.RedisKeys;
+import xiaozhi.common.redis.RedisMetrics;
 
 /**
  * Redis切面处理类
@@ -18,7 +28,21 @@ import xiaozhi.common.exception.RenException;
 @Slf4j
 @Aspect
 @Component
+@RequiredArgsConstructor
 public class RedisAspect {
+    /**
+     * 会改变缓存内容的方法，熔断期间跳过时需记录其Key，恢复后删除
+     */
+    private static final Set<String> INVALIDATING_METHODS = Set.of("set", "multiSet", "increment", "decrement",
+            "delete", "unlink", "hSet", "hMSet", "hDel");
+    /**
+     * 不带Key、Redis不可用时可以跳过的方法：发布订阅通知由各订阅方在恢复后重新同步，管道目前只用于回填缓存
+     */
+    private static final Set<String> DEGRADABLE_KEYLESS_METHODS = Set.of("publish", "pipeline");
+
+    private final RedisCircuitBreaker circuitBreaker;
+    private final RedisMetrics redisMetrics;
+
     /**
      * 是否开启redis缓存 true开启 false关闭
      */
@@ -27,15 +51,99 @@ public class RedisAspect {
 
     @Around("execution(* xiaozhi.common.redis.RedisUtils.*(..))")
     public Object around(ProceedingJoinPoint point) throws Throwable {
-        Object result = null;
-        if (open) {
-            try {
-                result = point.proceed();
-            } catch (Exception e) {
-                log.error("redis error", e);
+        if (!open) {
+            return null;
+        }
+        // 熔断期间缓存读返回null由调用方回源，写直接跳过；计数、验证码、任务状态等非缓存数据仍然报错
+        if (!circuitBreaker.allowRequest()) {
+            if (!isDegradable(point)) {
                 throw new RenException(ErrorCode.REDIS_ERROR);
             }
+            recordSkippedWrite(point);
+            return null;
+        }
+        boolean metered = redisMetrics.isEnabled();
+        int family = metered ? redisMetrics.family(firstKey(point.getArgs())) : 0;
+        long start = metered ? redisMetrics.begin(family) : 0;
+        boolean error = false;
+        try {
+            Object result = point.proceed();
+            circuitBreaker.onSuccess();
+            return result;
+        } catch (Exception e) {
+            error = true;
+            if (circuitBreaker.isUnavailable(e)) {
+                log.warn("redis unavailable: {}", e.getMessage());
+                circuitBreaker.onFailure(e);
+                if (!isDegradable(point)) {
+                    throw new RenException(ErrorCode.REDIS_ERROR);
+                }
+                recordSkippedWrite(point);
+                return null;
+            }
+            circuitBreaker.onSuccess();
+            log.error("redis error", e);
+            throw new RenException(ErrorCode.REDIS_ERROR);
+        } finally {
+            if (metered) {
+                redisMetrics.end(family, start, error);
+            }
+        }
+    }
+
+    /**
+     * 用于统计分类的Key，多Key操作取第一个
+     */
+    private static String firstKey(Object[] args) {
+        if (args.length == 0) {
+            return null;
+        }
+        if (args[0] instanceof String key) {
+            return key;
+        }
+        if (args[0] instanceof List<?> keys && !keys.isEmpty() && keys.get(0) instanceof String key) {
+            return key;
+        }
+        return null;
+    }
+
+    /**
+     * Redis不可用时是否可以降级：只有操作的Key全部是缓存Key时才可以
+     */
+    private static boolean isDegradable(ProceedingJoinPoint point) {
+        if (DEGRADABLE_KEYLESS_METHODS.contains(point.getSignature().getName())) {
+            return true;
+        }
+        Object[] args = point.getArgs();
+        if (args.length == 0) {
+            return false;
+        }
+        Collection<String> keys = keysOf(args[0]);
+        return !keys.isEmpty() && keys.stream().allMatch(RedisKeys::isCacheKey);
+    }
+
+    private void recordSkippedWrite(ProceedingJoinPoint point) {
+        if (!INVALIDATING_METHODS.contains(point.getSignature().getName())) {
+            return;
+        }
+        Object[] args = point.getArgs();
+        if (args.length == 0) {
+            return;
+        }
+        circuitBreaker.recordSkippedWrite(keysOf(args[0]));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Collection<String> keysOf(Object arg) {
+        if (arg instanceof String key) {
+            return List.of(key);
+        }
+        if (arg instanceof Collection<?> keys) {
+            return (Collection<String>) keys;
+        }
+        if (arg instanceof Map<?, ?> values) {
+            return (Collection<String>) values.keySet();
         }
-        return result;
+        return Collections.emptyList();
     }
 }
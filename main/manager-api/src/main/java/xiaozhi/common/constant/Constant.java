@@ -111,6 +111,11 @@ public interface Constant {
      */
     String MAX_CHAT_COUNT = "server.max_chat_count";
 
+    /**
+     * 单台设备每天最多输出字数
+     */
+    String DEVICE_MAX_OUTPUT_SIZE = "device_max_output_size";
+
     /**
      * 路径分割符
      */
@@ -0,0 +1,160 @@
+package xiaozhi.common.redis;
+
+import java.io.ByteArrayOutputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+
+/**
+ * 紧凑二进制Redis值序列化器
+ * <p>
+ * 对象、集合等结构化值以Smile二进制格式写入，超过阈值的再做Deflate压缩，写入内容以1字节魔数和1字节标志位开头；
+ * 字符串、数字、布尔值仍按JSON写入，保证INCR等命令和Lua脚本可以直接处理。
+ * 读取时按魔数区分格式，没有魔数的按JSON读取，因此切换过程中新旧格式的值可以同时存在
+ */
+public class CompactRedisSerializer implements RedisSerializer<Object> {
+    /**
+     * 紧凑格式魔数，JSON文本不会以该字节开头
+     */
+    private static final byte MAGIC = (byte) 0xC5;
+    /**
+     * 标志位：内容经过Deflate压缩
+     */
+    private static final byte FLAG_DEFLATE = 0x01;
+    private static final int HEADER_LENGTH = 2;
+
+    /**
+     * 是否以紧凑格式写入，为false时只写JSON，但仍可读取紧凑格式
+     */
+    private final boolean writeCompact;
+    private final RedisSerializer<Object> json;
+    private final RedisSerializer<Object> smile;
+    /**
+     * 超过该字节数的值进行压缩，小于等于0表示不压缩
+     */
+    private final int compressThreshold;
+    /**
+     * 读写字节数统计，可为空
+     */
+    private final RedisMetrics metrics;
+
+    public CompactRedisSerializer(boolean writeCompact, int compressThreshold) {
+        this(writeCompact, compressThreshold, null);
+    }
+
+    public CompactRedisSerializer(boolean writeCompact, int compressThreshold, RedisMetrics metrics) {
+        this.writeCompact = writeCompact;
+        this.metrics = metrics;
+        this.json = RedisSerializer.json();
+        ObjectMapper smileMapper = new SmileMapper();
+        this.smile = GenericJackson2JsonRedisSerializer.builder()
+                .objectMapper(smileMapper)
+                .defaultTyping(true)
+                .build();
+        this.compressThreshold = compressThreshold;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        byte[] bytes = write(value);
+        if (metrics != null && bytes != null) {
+            metrics.recordBytes(true, bytes.length);
+        }
+        return bytes;
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (metrics != null) {
+            metrics.recordBytes(false, bytes.length);
+        }
+        return read(bytes);
+    }
+
+    private byte[] write(Object value) {
+        if (!writeCompact || value == null || value instanceof CharSequence || value instanceof Number
+                || value instanceof Boolean) {
+            return json.serialize(value);
+        }
+        byte[] payload = smile.serialize(value);
+        byte flags = 0;
+        if (compressThreshold > 0 && payload.length > compressThreshold) {
+            byte[] compressed = deflate(payload);
+            // 压缩后没有变小的保留原始内容
+            if (compressed.length < payload.length) {
+                payload = compressed;
+                flags |= FLAG_DEFLATE;
+            }
+        }
+        byte[] result = new byte[payload.length + HEADER_LENGTH];
+        result[0] = MAGIC;
+        result[1] = flags;
+        System.arraycopy(payload, 0, result, HEADER_LENGTH, payload.length);
+        return result;
+    }
+
+    private Object read(byte[] bytes) {
+        if (bytes[0] != MAGIC) {
+            return json.deserialize(bytes);
+        }
+        if (bytes.length < HEADER_LENGTH) {
+            throw new SerializationException("Truncated compact redis value");
+        }
+        byte[] payload;
+        if ((bytes[1] & FLAG_DEFLATE) != 0) {
+            payload = inflate(bytes, HEADER_LENGTH);
+        } else {
+            payload = new byte[bytes.length - HEADER_LENGTH];
+            System.arraycopy(bytes, HEADER_LENGTH, payload, 0, payload.length);
+        }
+        return smile.deserialize(payload);
+    }
+
+    private static byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2 + 16);
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buffer);
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] data, int offset) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data, offset, data.length - offset);
+            ByteArrayOutputStream out = new ByteArrayOutputStream((data.length - offset) * 3);
+            byte[] buffer = new byte[4096];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new SerializationException("Truncated compressed redis value");
+                }
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new SerializationException("Invalid compressed redis value", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package xiaozhi.common.redis;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.google.common.util.concurrent.RateLimiter;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 旧代际缓存清理
+ * <p>
+ * 版本升级后缓存Key使用新前缀，旧前缀的Key由后台线程通过SCAN增量查找并限速UNLINK，不阻塞Redis。
+ * 多节点同时启动时通过租约只由一个节点清理，完成后记录标记，同一代际不再重复清理
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RedisCacheSweeper {
+    /**
+     * 每次SCAN的数量提示
+     */
+    private static final int SCAN_COUNT = 500;
+    /**
+     * 清理租约过期时长，单位：秒
+     */
+    private static final long LOCK_EXPIRE = 60 * 60L;
+    /**
+     * 引入缓存代际前缀之前的缓存Key
+     */
+    private static final List<String> LEGACY_PATTERNS = List.of(
+            "sys:params",
+            "sys:username:id:*",
+            "sys:dict:data:*",
+            "model:name:*",
+            "model:data:*",
+            "timbre:name:*",
+            "timbre:details:*",
+            "agent:device:count:*",
+            "agent:device:lastConnected:*",
+            "agent:config:snapshot:*",
+            "server:config");
+
+    private final RedisUtils redisUtils;
+
+    @Value("${renren.redis.open}")
+    private boolean open;
+
+    /**
+     * 每秒最多删除的Key数
+     */
+    @Value("${renren.redis.sweep-rate:1000}")
+    private double sweepRate;
+
+    private final AtomicLong sweptKeys = new AtomicLong();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!open) {
+            return;
+        }
+        Thread sweeper = new Thread(this::sweepIfNeeded, "RedisCacheSweeper");
+        sweeper.setDaemon(true);
+        sweeper.start();
+    }
+
+    /**
+     * 已清理的Key数
+     */
+    public long getSweptKeys() {
+        return sweptKeys.get();
+    }
+
+    private void sweepIfNeeded() {
+        String generation = RedisKeys.CACHE_GENERATION;
+        try {
+            if (redisUtils.get(RedisKeys.getCacheSweptKey(generation)) != null) {
+                return;
+            }
+            String lockKey = RedisKeys.getCacheSweepLockKey();
+            if (!Boolean.TRUE.equals(redisUtils.setIfAbsent(lockKey, generation, LOCK_EXPIRE))) {
+                return;
+            }
+            try {
+                long start = System.currentTimeMillis();
+                sweep();
+                redisUtils.set(RedisKeys.getCacheSweptKey(generation), start, RedisUtils.NOT_EXPIRE);
+                log.info("Old cache generations swept, generation={}, keys={}, cost={}ms", generation,
+                        sweptKeys.get(), System.currentTimeMillis() - start);
+            } finally {
+                redisUtils.delete(lockKey);
+            }
+        } catch (Exception e) {
+            // 旧Key仍会按过期时间淘汰，下次启动时重试
+            log.error("Failed to sweep old cache generations", e);
+        }
+    }
+
+    private void sweep() {
+        RateLimiter rateLimiter = RateLimiter.create(sweepRate);
+        String currentPrefix = RedisKeys.getCacheGenerationPrefix();
+        redisUtils.scan(RedisKeys.CACHE_PREFIX + "*", SCAN_COUNT, keys -> {
+            List<String> stale = keys.stream().filter(key -> !key.startsWith(currentPrefix)).toList();
+            unlink(rateLimiter, stale);
+        });
+        for (String pattern : LEGACY_PATTERNS) {
+            redisUtils.scan(pattern, SCAN_COUNT, keys -> unlink(rateLimiter, keys));
+        }
+    }
+
+    private void unlink(RateLimiter rateLimiter, List<String> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        rateLimiter.acquire(keys.size());
+        redisUtils.unlink(keys);
+        sweptKeys.addAndGet(keys.size());
+    }
+}
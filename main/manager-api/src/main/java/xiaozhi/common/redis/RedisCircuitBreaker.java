@@ -0,0 +1,215 @@
+package xiaozhi.common.redis;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Redis熔断器
+ * <p>
+ * 连续出现连接失败或超时达到阈值后熔断，熔断期间不再访问Redis：缓存读操作返回null，由调用方回源数据库或使用本地缓存；
+ * 缓存写操作直接跳过，涉及的Key记录下来，恢复后统一删除，避免跳过的失效操作留下旧数据。
+ * 计数器、验证码、任务状态等非缓存数据无法降级，熔断期间直接报错。
+ * 熔断时长结束后放行一次探测请求，成功则恢复，失败则继续熔断。
+ * 正常状态下每次调用只读取一次状态，不加锁
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RedisCircuitBreaker {
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    /**
+     * 恢复后每批删除的Key数量
+     */
+    private static final int REPLAY_BATCH_SIZE = 500;
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * 连续失败多少次后熔断
+     */
+    @Value("${renren.redis.circuit.failure-threshold:5}")
+    private int failureThreshold;
+    /**
+     * 熔断时长，单位：秒
+     */
+    @Value("${renren.redis.circuit.open-seconds:10}")
+    private long openSeconds;
+    /**
+     * 熔断期间最多记录的待删除Key数，超出部分依赖过期时间
+     */
+    @Value("${renren.redis.circuit.pending-limit:10000}")
+    private int pendingLimit;
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile long openUntil;
+
+    private final Set<String> pendingKeys = new LinkedHashSet<>();
+    private final ExecutorService replayExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "RedisRecoveryReplay");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicLong opens = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong droppedKeys = new AtomicLong();
+    private final AtomicLong replayedKeys = new AtomicLong();
+    private volatile long lastOpenedAt;
+
+    /**
+     * 本次调用是否可以访问Redis
+     */
+    public boolean allowRequest() {
+        State current = state.get();
+        if (current == State.CLOSED) {
+            return true;
+        }
+        // 熔断时长结束后只放行一个探测请求
+        if (current == State.OPEN && System.currentTimeMillis() >= openUntil
+                && state.compareAndSet(State.OPEN, State.HALF_OPEN)) {
+            log.info("Redis circuit half-open, probing");
+            return true;
+        }
+        rejected.incrementAndGet();
+        return false;
+    }
+
+    public void onSuccess() {
+        if (consecutiveFailures.get() != 0) {
+            consecutiveFailures.set(0);
+        }
+        if (state.get() == State.HALF_OPEN && state.compareAndSet(State.HALF_OPEN, State.CLOSED)) {
+            log.info("Redis circuit closed, replaying skipped invalidations");
+            replayExecutor.execute(this::replay);
+        }
+    }
+
+    public void onFailure(Exception e) {
+        failures.incrementAndGet();
+        if (state.get() == State.HALF_OPEN) {
+            open();
+            return;
+        }
+        if (consecutiveFailures.incrementAndGet() >= failureThreshold && state.get() == State.CLOSED) {
+            open();
+        }
+    }
+
+    /**
+     * 是否为Redis不可用一类的异常，命令本身的错误（如序列化失败）不计入熔断
+     */
+    public boolean isUnavailable(Throwable e) {
+        return e instanceof DataAccessResourceFailureException || e instanceof QueryTimeoutException;
+    }
+
+    /**
+     * 记录未能执行的写操作涉及的缓存Key，恢复后删除；非缓存Key是计数器等实时数据，不能删除
+     */
+    public void recordSkippedWrite(Collection<String> keys) {
+        String cachePrefix = RedisKeys.getCacheGenerationPrefix();
+        synchronized (pendingKeys) {
+            for (String key : keys) {
+                if (key == null || !key.startsWith(cachePrefix)) {
+                    continue;
+                }
+                if (pendingKeys.size() >= pendingLimit && !pendingKeys.contains(key)) {
+                    droppedKeys.incrementAndGet();
+                    continue;
+                }
+                pendingKeys.add(key);
+            }
+        }
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    /**
+     * 熔断统计信息
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("state", state.get().name());
+        stats.put("consecutiveFailures", consecutiveFailures.get());
+        stats.put("opens", opens.get());
+        stats.put("lastOpenedAt", lastOpenedAt);
+        stats.put("failures", failures.get());
+        stats.put("rejected", rejected.get());
+        synchronized (pendingKeys) {
+            stats.put("pendingKeys", pendingKeys.size());
+        }
+        stats.put("droppedKeys", droppedKeys.get());
+        stats.put("replayedKeys", replayedKeys.get());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        replayExecutor.shutdownNow();
+    }
+
+    private void open() {
+        openUntil = System.currentTimeMillis() + openSeconds * 1000;
+        State previous = state.getAndSet(State.OPEN);
+        if (previous == State.CLOSED) {
+            opens.incrementAndGet();
+            lastOpenedAt = System.currentTimeMillis();
+            log.error("Redis circuit opened after {} consecutive failures, retry in {}s", consecutiveFailures.get(),
+                    openSeconds);
+        }
+    }
+
+    private void replay() {
+        while (state.get() == State.CLOSED) {
+            List<String> batch = new ArrayList<>(REPLAY_BATCH_SIZE);
+            synchronized (pendingKeys) {
+                var iterator = pendingKeys.iterator();
+                while (iterator.hasNext() && batch.size() < REPLAY_BATCH_SIZE) {
+                    batch.add(iterator.next());
+                    iterator.remove();
+                }
+            }
+            if (batch.isEmpty()) {
+                break;
+            }
+            try {
+                redisTemplate.unlink(batch);
+                replayedKeys.addAndGet(batch.size());
+            } catch (Exception e) {
+                log.warn("Failed to replay skipped invalidations, will retry after next recovery", e);
+                recordSkippedWrite(batch);
+                return;
+            }
+        }
+        // 熔断期间其他节点的失效通知可能丢失，清空本节点的本地缓存
+        eventPublisher.publishEvent(new RedisRecoveredEvent(this));
+    }
+}
@@ -1,9 +1,11 @@
 package xiaozhi.common.redis;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
@@ -18,16 +20,47 @@ import jakarta.annotation.Resource;
 public class RedisConfig {
     @Resource
     private RedisConnectionFactory factory;
+    @Resource
+    private RedisMetrics redisMetrics;
+    /**
+     * 值序列化格式：json 或 compact（Smile二进制，超过阈值压缩）
+     */
+    @Value("${renren.redis.serializer:json}")
+    private String serializer;
+    /**
+     * compact格式下超过该字节数的值进行压缩
+     */
+    @Value("${renren.redis.compress-threshold:1024}")
+    private int compressThreshold;
 
     @Bean
     public RedisTemplate<String, Object> redisTemplate() {
+        RedisSerializer<Object> valueSerializer = valueSerializer();
         RedisTemplate<String, Object> redisTemplate = new RedisTemplate<>();
         redisTemplate.setKeySerializer(new StringRedisSerializer());
-        redisTemplate.setValueSerializer(RedisSerializer.json());
+        redisTemplate.setValueSerializer(valueSerializer);
         redisTemplate.setHashKeySerializer(new StringRedisSerializer());
-        redisTemplate.setHashValueSerializer(RedisSerializer.json());
+        redisTemplate.setHashValueSerializer(valueSerializer);
         redisTemplate.setConnectionFactory(factory);
 
         return redisTemplate;
     }
-}
\ No newline at end of file
+
+    /**
+     * 两种配置下读取都能识别另一种格式写入的值，可以先全部上线新版本，再切换为compact；回退时同理
+     */
+    private RedisSerializer<Object> valueSerializer() {
+        return new CompactRedisSerializer("compact".equalsIgnoreCase(serializer), compressThreshold,
+                redisMetrics);
+    }
+
+    /**
+     * Redis发布订阅监听容器，用于多节点间的本地缓存失效通知
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer() {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(factory);
+        return container;
+    }
+}
@@ -1,16 +1,60 @@
 package xiaozhi.common.redis;
 
+import xiaozhi.common.constant.Constant;
+
 /**
  * Redis Key 常量类
+ * <p>
+ * 可由数据库重建的缓存数据带有缓存代际前缀，版本升级后使用新前缀，旧Key自然过期或由{@link RedisCacheSweeper}清理；
+ * 验证码、短信、OTA下载等业务状态不带前缀，升级时保留
  * Copyright (c) 人人开源 All rights reserved.
  * Website: https://www.renren.io
  */
 public class RedisKeys {
+    /**
+     * 缓存Key前缀
+     */
+    public static final String CACHE_PREFIX = "cache:";
+    /**
+     * 缓存代际，与系统版本号一致
+     */
+    public static final String CACHE_GENERATION = Constant.VERSION;
+    /**
+     * Key分类前缀，去掉缓存代际前缀后匹配，用于按分类统计Redis访问；新增Key时同步添加
+     */
+    public static final String[] KEY_FAMILIES = {
+            "sys:params", "sys:captcha:", "sys:device:captcha:", "sys:username:id:", "sys:version",
+            "sys:dict:data:", "sys:chat:count:dirty", "sys:chat:count:", "sys:chat:sync:", "sys:chat:limit:", "sys:cache:swept:",
+            "model:name:", "model:data:", "timbre:name:", "timbre:details:",
+            "agent:device:count:", "agent:device:lastConnected:", "agent:audio:id:",
+            "agent:config:snapshot:dep:", "agent:config:snapshot:", "server:config",
+            "device:bound:recent:", "ota:id:", "ota:download:count:", "ota:download:resume:", "sms:Validate:Code:", "lock:load:", "lock:cache:sweep", "lock:rollup:backfill"
+    };
+
+    /**
+     * 当前代际的缓存Key前缀
+     */
+    public static String getCacheGenerationPrefix() {
+        return CACHE_PREFIX + CACHE_GENERATION + ":";
+    }
+
+    /**
+     * 是否为当前代际的缓存Key或其加载租约Key，只有这类Key在Redis不可用时可以降级为未命中
+     */
+    public static boolean isCacheKey(String key) {
+        return key != null && (key.startsWith(getCacheGenerationPrefix())
+                || key.startsWith(getLoadLeaseKey(getCacheGenerationPrefix())));
+    }
+
+    private static String cacheKey(String key) {
+        return getCacheGenerationPrefix() + key;
+    }
+
     /**
      * 系统参数Key
      */
     public static String getSysParamsKey() {
-        return "sys:params";
+        return cacheKey("sys:params");
     }
 
     /**
@@ -31,56 +75,56 @@ public class RedisKeys {
      * 用户id的Key
      */
     public static String getUserIdKey(Long userid) {
-        return "sys:username:id:" + userid;
+        return cacheKey("sys:username:id:" + userid);
     }
 
     /**
      * 模型名称的Key
      */
     public static String getModelNameById(String id) {
-        return "model:name:" + id;
+        return cacheKey("model:name:" + id);
     }
 
     /**
      * 模型配置的Key
      */
     public static String getModelConfigById(String id) {
-        return "model:data:" + id;
+        return cacheKey("model:data:" + id);
     }
 
     /**
      * 获取音色名称缓存key
      */
     public static String getTimbreNameById(String id) {
-        return "timbre:name:" + id;
+        return cacheKey("timbre:name:" + id);
     }
 
     /**
      * 获取设备数量缓存key
      */
     public static String getAgentDeviceCountById(String id) {
-        return "agent:device:count:" + id;
+        return cacheKey("agent:device:count:" + id);
     }
 
     /**
      * 获取智能体最后连接时间缓存key
      */
     public static String getAgentDeviceLastConnectedAtById(String id) {
-        return "agent:device:lastConnected:" + id;
+        return cacheKey("agent:device:lastConnected:" + id);
     }
 
     /**
      * 获取系统配置缓存key
      */
     public static String getServerConfigKey() {
-        return "server:config";
+        return cacheKey("server:config");
     }
 
     /**
      * 获取音色详情缓存key
      */
     public static String getTimbreDetailsKey(String id) {
-        return "timbre:details:" + id;
+        return cacheKey("timbre:details:" + id);
     }
 
     /**
@@ -104,11 +148,18 @@ public class RedisKeys {
         return "ota:download:count:" + uuid;
     }
 
+    /**
+     * OTA固件下载进行中标记，值为已续传的次数
+     */
+    public static String getOtaDownloadResumeKey(String uuid) {
+        return "ota:download:resume:" + uuid;
+    }
+
     /**
      * 获取字典数据的缓存key
      */
     public static String getDictDataByTypeKey(String dictType) {
-        return "sys:dict:data:" + dictType;
+        return cacheKey("sys:dict:data:" + dictType);
     }
 
     /**
@@ -139,4 +190,123 @@ public class RedisKeys {
         return "sms:Validate:Code:" + phone + ":today_count";
     }
 
+    /**
+     * 用户当月聊天次数计数器Key
+     */
+    public static String getUserChatCountKey(String month, Long userId) {
+        return "sys:chat:count:" + month + ":" + userId;
+    }
+
+    /**
+     * 待回写数据库的聊天计数集合Key
+     */
+    public static String getChatCountDirtyKey() {
+        return "sys:chat:count:dirty";
+    }
+
+    /**
+     * 聊天次数同步到数据库的断点Key
+     */
+    public static String getChatCountSyncCheckpointKey(String month) {
+        return "sys:chat:sync:" + month;
+    }
+
+    /**
+     * 聊天次数限制调整任务状态Key
+     */
+    public static String getChatLimitJobKey() {
+        return "sys:chat:limit:job";
+    }
+
+    /**
+     * 聊天次数限制调整任务取消请求Key，值为要取消的任务ID
+     */
+    public static String getChatLimitCancelKey() {
+        return "sys:chat:limit:cancel";
+    }
+
+    /**
+     * 智能体编译后配置快照的缓存key
+     */
+    public static String getAgentConfigSnapshotKey(String agentId) {
+        return cacheKey("agent:config:snapshot:" + agentId);
+    }
+
+    /**
+     * 引用了指定模型/音色的智能体快照集合key，type为model或timbre
+     */
+    public static String getAgentConfigSnapshotDepKey(String type, String id) {
+        return cacheKey("agent:config:snapshot:dep:" + type + ":" + id);
+    }
+
+    /**
+     * 智能体配置快照失效通知的频道
+     */
+    public static String getAgentConfigSnapshotChannel() {
+        return "agent:config:snapshot:evict";
+    }
+
+    /**
+     * 本地近端缓存失效通知的频道
+     */
+    public static String getNearCacheChannel() {
+        return "cache:near:evict";
+    }
+
+    /**
+     * 登录token撤销通知的频道
+     */
+    public static String getTokenRevokeChannel() {
+        return "sys:token:revoke";
+    }
+
+    /**
+     * 最新固件索引刷新通知的频道
+     */
+    public static String getOtaLatestRefreshChannel() {
+        return "ota:latest:refresh";
+    }
+
+    /**
+     * 设备绑定通知的频道
+     */
+    public static String getBoundMacChannel() {
+        return "device:bound:mac";
+    }
+
+    /**
+     * 最近绑定的设备MAC标记Key，各节点过滤器重建前据此确认判定未绑定的MAC
+     */
+    public static String getRecentlyBoundMacKey(String mac) {
+        return "device:bound:recent:" + mac;
+    }
+
+    /**
+     * 缓存未命中时合并加载的租约Key
+     */
+    public static String getLoadLeaseKey(String key) {
+        return "lock:load:" + key;
+    }
+
+    /**
+     * 旧代际缓存清理租约Key
+     */
+    public static String getCacheSweepLockKey() {
+        return "lock:cache:sweep";
+    }
+
+    /**
+     * 每日聊天汇总初始回填租约Key
+     */
+    public static String getChatRollupBackfillLockKey() {
+        return "lock:rollup:backfill";
+    }
+
+    /**
+     * 已完成旧代际缓存清理的标记Key
+     */
+    public static String getCacheSweptKey(String generation) {
+        return "sys:cache:swept:" + generation;
+    }
+
 }
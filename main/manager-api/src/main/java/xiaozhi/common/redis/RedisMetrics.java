@@ -0,0 +1,253 @@
+package xiaozhi.common.redis;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 按Key分类统计Redis访问
+ * <p>
+ * 分类取自{@link RedisKeys#KEY_FAMILIES}，统计调用次数、耗时分布、命中率、读写字节数和错误数。
+ * 计数全部使用预先分配的{@link LongAdder}，分类匹配按前缀逐个比较，记录过程不产生对象，可在生产环境常开
+ */
+@Slf4j
+@Component
+public class RedisMetrics {
+    /**
+     * 耗时分桶数，第i个桶记录小于2^i微秒的调用，最后一个桶记录其余所有调用
+     */
+    private static final int LATENCY_BUCKETS = 24;
+    private static final String OTHER = "other";
+    private static final String OLD_GENERATION = "cache:old";
+
+    @Value("${renren.redis.metrics.enabled:true}")
+    private boolean enabled;
+
+    private final String generationPrefix = RedisKeys.getCacheGenerationPrefix();
+    /**
+     * 按长度降序排列，保证先匹配更具体的前缀
+     */
+    private final String[] prefixes;
+    /**
+     * 与prefixes下标一致，末尾两项为其他Key和旧代际缓存Key
+     */
+    private final FamilyMetrics[] families;
+    private final int otherIndex;
+    private final int oldGenerationIndex;
+
+    /**
+     * 当前线程正在访问的Key分类，供序列化器统计字节数
+     */
+    private final ThreadLocal<int[]> currentFamily = ThreadLocal.withInitial(() -> new int[] { -1 });
+
+    public RedisMetrics() {
+        prefixes = Arrays.stream(RedisKeys.KEY_FAMILIES)
+                .sorted(Comparator.comparingInt(String::length).reversed())
+                .toArray(String[]::new);
+        otherIndex = prefixes.length;
+        oldGenerationIndex = prefixes.length + 1;
+        families = new FamilyMetrics[prefixes.length + 2];
+        for (int i = 0; i < prefixes.length; i++) {
+            families[i] = new FamilyMetrics(trimSeparator(prefixes[i]));
+        }
+        families[otherIndex] = new FamilyMetrics(OTHER);
+        families[oldGenerationIndex] = new FamilyMetrics(OLD_GENERATION);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Key所属分类的下标
+     */
+    public int family(String key) {
+        if (key == null) {
+            return otherIndex;
+        }
+        int offset = 0;
+        if (key.startsWith(RedisKeys.CACHE_PREFIX)) {
+            if (!key.startsWith(generationPrefix)) {
+                return oldGenerationIndex;
+            }
+            offset = generationPrefix.length();
+        }
+        for (int i = 0; i < prefixes.length; i++) {
+            if (key.startsWith(prefixes[i], offset)) {
+                return i;
+            }
+        }
+        return otherIndex;
+    }
+
+    /**
+     * 开始一次调用，返回开始时间
+     */
+    public long begin(int family) {
+        currentFamily.get()[0] = family;
+        return System.nanoTime();
+    }
+
+    /**
+     * 结束一次调用
+     */
+    public void end(int family, long startNanos, boolean error) {
+        long elapsed = System.nanoTime() - startNanos;
+        currentFamily.get()[0] = -1;
+        FamilyMetrics metrics = families[family];
+        metrics.calls.increment();
+        metrics.totalNanos.add(elapsed);
+        metrics.latency[bucket(elapsed)].increment();
+        if (error) {
+            metrics.errors.increment();
+        }
+    }
+
+    public void recordHit(String key, boolean hit) {
+        if (!enabled) {
+            return;
+        }
+        FamilyMetrics metrics = families[family(key)];
+        if (hit) {
+            metrics.hits.increment();
+        } else {
+            metrics.misses.increment();
+        }
+    }
+
+    /**
+     * 记录序列化后的字节数，归入当前线程正在访问的分类
+     */
+    public void recordBytes(boolean write, int bytes) {
+        if (!enabled) {
+            return;
+        }
+        int family = currentFamily.get()[0];
+        FamilyMetrics metrics = families[family < 0 ? otherIndex : family];
+        if (write) {
+            metrics.bytesWritten.add(bytes);
+        } else {
+            metrics.bytesRead.add(bytes);
+        }
+    }
+
+    /**
+     * 各分类的统计信息，只包含有访问记录的分类
+     */
+    public Map<String, Map<String, Object>> getStats() {
+        Map<String, Map<String, Object>> result = new TreeMap<>();
+        for (FamilyMetrics metrics : families) {
+            long calls = metrics.calls.sum();
+            long hits = metrics.hits.sum();
+            long misses = metrics.misses.sum();
+            if (calls == 0 && hits == 0 && misses == 0) {
+                continue;
+            }
+            long[] latency = new long[LATENCY_BUCKETS];
+            for (int i = 0; i < LATENCY_BUCKETS; i++) {
+                latency[i] = metrics.latency[i].sum();
+            }
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("calls", calls);
+            stats.put("errors", metrics.errors.sum());
+            stats.put("hits", hits);
+            stats.put("misses", misses);
+            stats.put("hitRatio", hits + misses == 0 ? null : (double) hits / (hits + misses));
+            stats.put("bytesRead", metrics.bytesRead.sum());
+            stats.put("bytesWritten", metrics.bytesWritten.sum());
+            stats.put("avgMicros", calls == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(metrics.totalNanos.sum() / calls));
+            stats.put("p50Micros", percentile(latency, 0.50));
+            stats.put("p95Micros", percentile(latency, 0.95));
+            stats.put("p99Micros", percentile(latency, 0.99));
+            result.put(metrics.name, stats);
+        }
+        return result;
+    }
+
+    /**
+     * 定期输出各分类自上次输出以来的调用次数和累计统计
+     */
+    @Scheduled(fixedDelayString = "${renren.redis.metrics.log-interval-ms:300000}",
+            initialDelayString = "${renren.redis.metrics.log-interval-ms:300000}")
+    public void logSummary() {
+        if (!enabled) {
+            return;
+        }
+        Map<String, Map<String, Object>> stats = getStats();
+        for (FamilyMetrics metrics : families) {
+            Map<String, Object> familyStats = stats.get(metrics.name);
+            if (familyStats == null) {
+                continue;
+            }
+            long calls = (Long) familyStats.get("calls");
+            long delta = calls - metrics.lastLoggedCalls;
+            metrics.lastLoggedCalls = calls;
+            if (delta == 0) {
+                continue;
+            }
+            log.info("redis [{}] calls+={} {}", metrics.name, delta, familyStats);
+        }
+    }
+
+    private static int bucket(long nanos) {
+        long micros = nanos / 1000;
+        int bucket = 64 - Long.numberOfLeadingZeros(micros);
+        return Math.min(bucket, LATENCY_BUCKETS - 1);
+    }
+
+    /**
+     * 按分桶估算分位数，返回所在桶的上界
+     */
+    private static long percentile(long[] latency, double quantile) {
+        long total = 0;
+        for (long count : latency) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long target = (long) Math.ceil(total * quantile);
+        long seen = 0;
+        for (int i = 0; i < latency.length; i++) {
+            seen += latency[i];
+            if (seen >= target) {
+                return 1L << i;
+            }
+        }
+        return 1L << (latency.length - 1);
+    }
+
+    private static String trimSeparator(String prefix) {
+        return prefix.endsWith(":") ? prefix.substring(0, prefix.length() - 1) : prefix;
+    }
+
+    private static class FamilyMetrics {
+        private final String name;
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder bytesRead = new LongAdder();
+        private final LongAdder bytesWritten = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAdder[] latency = new LongAdder[LATENCY_BUCKETS];
+        private long lastLoggedCalls;
+
+        private FamilyMetrics(String name) {
+            this.name = name;
+            for (int i = 0; i < LATENCY_BUCKETS; i++) {
+                latency[i] = new LongAdder();
+            }
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package xiaozhi.common.redis;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Redis本地近端缓存
+ * <p>
+ * 在{@link RedisUtils}前加一层进程内缓存，Key与Redis保持一致，用于读多写少的热点数据。
+ * 本地缓存按容量和过期时间淘汰；数据变更时删除Redis并通过发布订阅通知所有节点清除本地副本。
+ * 返回的对象在多个请求间共享，调用方不能修改
+ */
+@Component
+@RequiredArgsConstructor
+public class RedisNearCache implements MessageListener {
+    /**
+     * 本地缓存默认过期时长为60秒，单位：秒
+     */
+    public static final long DEFAULT_LOCAL_EXPIRE = 60L;
+    private static final long MAXIMUM_SIZE = 10000;
+    /**
+     * 通知清空全部本地缓存的消息
+     */
+    private static final String CLEAR_ALL = "*";
+    /**
+     * Hash字段在本地缓存中的Key分隔符
+     */
+    private static final String FIELD_SEPARATOR = "#";
+    private static final RedisSerializer<Object> MESSAGE_SERIALIZER = RedisSerializer.json();
+
+    private final RedisUtils redisUtils;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final RedisSingleFlight singleFlight;
+
+    private final Cache<String, LocalEntry> localCache = CacheBuilder.newBuilder()
+            .maximumSize(MAXIMUM_SIZE)
+            .expireAfterWrite(DEFAULT_LOCAL_EXPIRE, TimeUnit.SECONDS)
+            .build();
+
+    private final ConcurrentMap<String, FamilyStats> stats = new ConcurrentHashMap<>();
+
+    /**
+     * 每次失效时递增，读取Redis期间发生过失效的值不放入本地缓存
+     */
+    private final AtomicLong invalidateStamp = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(RedisKeys.getNearCacheChannel()));
+    }
+
+    public Object get(String key) {
+        return get(key, DEFAULT_LOCAL_EXPIRE);
+    }
+
+    /**
+     * 读取缓存，本地未命中时读取Redis
+     *
+     * @param key         Redis Key
+     * @param localExpire 本地缓存过期时长，单位：秒，不超过{@link #DEFAULT_LOCAL_EXPIRE}
+     */
+    public Object get(String key, long localExpire) {
+        return load(key, family(key), localExpire, () -> redisUtils.get(key));
+    }
+
+    /**
+     * 批量读取缓存，本地未命中的Key以一次MGET读取Redis
+     *
+     * @param keys        Redis Key
+     * @param localExpire 本地缓存过期时长，单位：秒，不超过{@link #DEFAULT_LOCAL_EXPIRE}
+     * @return 与keys顺序一致的值列表，未缓存的Key对应null
+     */
+    public List<Object> multiGet(List<String> keys, long localExpire) {
+        List<Object> values = new ArrayList<>(Collections.nCopies(keys.size(), null));
+        List<Integer> missIndexes = new ArrayList<>();
+        for (int i = 0; i < keys.size(); i++) {
+            String key = keys.get(i);
+            FamilyStats familyStats = stats.computeIfAbsent(family(key), k -> new FamilyStats());
+            LocalEntry entry = localCache.getIfPresent(key);
+            if (entry != null && !entry.isExpired()) {
+                familyStats.hits.incrementAndGet();
+                values.set(i, entry.value);
+            } else {
+                familyStats.misses.incrementAndGet();
+                missIndexes.add(i);
+            }
+        }
+        if (missIndexes.isEmpty()) {
+            return values;
+        }
+        long stamp = invalidateStamp.get();
+        List<Object> loaded = redisUtils.multiGet(missIndexes.stream().map(keys::get).toList());
+        boolean fillLocal = invalidateStamp.get() == stamp;
+        for (int j = 0; j < missIndexes.size(); j++) {
+            int index = missIndexes.get(j);
+            Object value = loaded == null ? null : loaded.get(j);
+            values.set(index, value);
+            if (fillLocal) {
+                putLocal(keys.get(index), value, localExpire);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * 读取Hash字段，本地未命中时读取Redis
+     */
+    public Object hGet(String key, String field) {
+        return load(key + FIELD_SEPARATOR + field, key, DEFAULT_LOCAL_EXPIRE, () -> redisUtils.hGet(key, field));
+    }
+
+    /**
+     * 读取缓存，未命中时从数据库加载并回填，并发的未命中合并为一次加载
+     *
+     * @param key      Redis Key
+     * @param dbLoader 从数据库加载，返回null时不回填
+     */
+    public <T> T getOrLoad(String key, Supplier<T> dbLoader) {
+        return getOrLoad(key, RedisUtils.DEFAULT_EXPIRE, DEFAULT_LOCAL_EXPIRE, dbLoader);
+    }
+
+    /**
+     * 读取缓存，未命中时从数据库加载并回填，并发的未命中合并为一次加载
+     *
+     * @param expire      Redis过期时长，单位：秒
+     * @param localExpire 本地缓存过期时长，单位：秒
+     * @param dbLoader    从数据库加载，返回null时不回填
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getOrLoad(String key, long expire, long localExpire, Supplier<T> dbLoader) {
+        Object value = get(key, localExpire);
+        if (value != null) {
+            return (T) value;
+        }
+        return singleFlight.load(key,
+                () -> (T) fillLocal(key, localExpire, redisUtils.get(key)),
+                dbLoader,
+                loaded -> put(key, loaded, expire, localExpire));
+    }
+
+    /**
+     * 读取Hash字段，未命中时从数据库加载并回填，并发的未命中合并为一次加载
+     *
+     * @param dbLoader 从数据库加载，返回null时不回填
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T hGetOrLoad(String key, String field, Supplier<T> dbLoader) {
+        Object value = hGet(key, field);
+        if (value != null) {
+            return (T) value;
+        }
+        String localKey = key + FIELD_SEPARATOR + field;
+        return singleFlight.load(localKey,
+                () -> (T) fillLocal(localKey, DEFAULT_LOCAL_EXPIRE, redisUtils.hGet(key, field)),
+                dbLoader,
+                loaded -> {
+                    redisUtils.hSet(key, field, loaded);
+                    putLocal(localKey, loaded, DEFAULT_LOCAL_EXPIRE);
+                });
+    }
+
+    /**
+     * 回填缓存，用于从数据库加载后写入，不通知其他节点
+     */
+    public void put(String key, Object value) {
+        put(key, value, RedisUtils.DEFAULT_EXPIRE, DEFAULT_LOCAL_EXPIRE);
+    }
+
+    /**
+     * 回填缓存，用于从数据库加载后写入，不通知其他节点
+     *
+     * @param expire      Redis过期时长，单位：秒
+     * @param localExpire 本地缓存过期时长，单位：秒
+     */
+    public void put(String key, Object value, long expire, long localExpire) {
+        redisUtils.set(key, value, expire);
+        putLocal(key, value, localExpire);
+    }
+
+    /**
+     * 批量回填缓存，Redis一次往返写入，不通知其他节点
+     *
+     * @param expire      Redis过期时长，单位：秒
+     * @param localExpire 本地缓存过期时长，单位：秒
+     */
+    public void multiPut(Map<String, Object> values, long expire, long localExpire) {
+        redisUtils.multiSet(values, expire);
+        values.forEach((key, value) -> putLocal(key, value, localExpire));
+    }
+
+    /**
+     * 数据变更时删除缓存，并通知所有节点
+     */
+    public void delete(String key) {
+        redisUtils.delete(key);
+        invalidate(key);
+    }
+
+    /**
+     * 数据变更时写入Hash字段，并通知所有节点
+     */
+    public void hSet(String key, String field, Object value) {
+        redisUtils.hSet(key, field, value);
+        invalidate(key + FIELD_SEPARATOR + field);
+    }
+
+    /**
+     * 数据变更时删除Hash字段，并通知所有节点
+     */
+    public void hDel(String key, Object... fields) {
+        redisUtils.hDel(key, fields);
+        for (Object field : fields) {
+            invalidate(key + FIELD_SEPARATOR + field);
+        }
+    }
+
+    /**
+     * 清空所有节点的本地缓存，用于Redis被整体清空之后
+     */
+    public void clearAll() {
+        invalidate(CLEAR_ALL);
+    }
+
+    /**
+     * 各Key分类的本地缓存命中统计，分类为Key去掉最后一段，Hash为Key本身
+     */
+    public Map<String, Map<String, Long>> getStats() {
+        Map<String, Map<String, Long>> result = new TreeMap<>();
+        stats.forEach((family, familyStats) -> result.put(family, Map.of(
+                "hits", familyStats.hits.get(),
+                "misses", familyStats.misses.get())));
+        return result;
+    }
+
+    /**
+     * Redis熔断期间收不到其他节点的失效通知，恢复后清空本节点的本地缓存
+     */
+    @EventListener(RedisRecoveredEvent.class)
+    public void onRedisRecovered() {
+        invalidateLocal(CLEAR_ALL);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        Object localKey = MESSAGE_SERIALIZER.deserialize(message.getBody());
+        invalidateLocal(localKey == null ? CLEAR_ALL : localKey.toString());
+    }
+
+    private Object load(String localKey, String family, long localExpire, Supplier<Object> loader) {
+        FamilyStats familyStats = stats.computeIfAbsent(family, k -> new FamilyStats());
+        LocalEntry entry = localCache.getIfPresent(localKey);
+        if (entry != null && !entry.isExpired()) {
+            familyStats.hits.incrementAndGet();
+            return entry.value;
+        }
+        familyStats.misses.incrementAndGet();
+        long stamp = invalidateStamp.get();
+        Object value = loader.get();
+        if (value != null && invalidateStamp.get() == stamp) {
+            putLocal(localKey, value, localExpire);
+        }
+        return value;
+    }
+
+    private Object fillLocal(String localKey, long localExpire, Object value) {
+        putLocal(localKey, value, localExpire);
+        return value;
+    }
+
+    private void putLocal(String localKey, Object value, long localExpire) {
+        if (value == null) {
+            return;
+        }
+        long expireSeconds = Math.min(localExpire, DEFAULT_LOCAL_EXPIRE);
+        localCache.put(localKey, new LocalEntry(value, System.nanoTime() + TimeUnit.SECONDS.toNanos(expireSeconds)));
+    }
+
+    private void invalidate(String localKey) {
+        invalidateLocal(localKey);
+        redisUtils.publish(RedisKeys.getNearCacheChannel(), localKey);
+    }
+
+    private void invalidateLocal(String localKey) {
+        invalidateStamp.incrementAndGet();
+        if (CLEAR_ALL.equals(localKey)) {
+            localCache.invalidateAll();
+        } else {
+            localCache.invalidate(localKey);
+        }
+    }
+
+    private static String family(String redisKey) {
+        int index = redisKey.lastIndexOf(':');
+        return index > 0 ? redisKey.substring(0, index) : redisKey;
+    }
+
+    private static class LocalEntry {
+        private final Object value;
+        private final long expireAtNanos;
+
+        LocalEntry(Object value, long expireAtNanos) {
+            this.value = value;
+            this.expireAtNanos = expireAtNanos;
+        }
+
+        boolean isExpired() {
+            return System.nanoTime() - expireAtNanos > 0;
+        }
+    }
+
+    private static class FamilyStats {
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+    }
+}
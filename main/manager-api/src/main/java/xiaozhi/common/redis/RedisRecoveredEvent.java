@@ -0,0 +1,13 @@
+package xiaozhi.common.redis;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Redis熔断恢复事件，此前跳过的失效操作已重放完毕
+ */
+public class RedisRecoveredEvent extends ApplicationEvent {
+
+    public RedisRecoveredEvent(Object source) {
+        super(source);
+    }
+}
@@ -0,0 +1,87 @@
+package xiaozhi.common.redis;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import xiaozhi.common.exception.RenException;
+
+/**
+ * Lua脚本注册表
+ * <p>
+ * 启动时一次性加载resources/lua下的所有脚本，按文件名（不含.lua）注册，脚本对象及其SHA1只计算一次。
+ * 执行时先EVALSHA，Redis中没有该脚本（NOSCRIPT）时再以EVAL发送脚本内容。
+ * 新增原子操作只需在resources/lua下添加脚本文件
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RedisScriptRegistry {
+    private static final String SCRIPT_LOCATION = "classpath*:lua/*.lua";
+    private static final String SCRIPT_SUFFIX = ".lua";
+
+    private final ResourceLoader resourceLoader;
+
+    private Map<String, String> scriptTexts = Collections.emptyMap();
+
+    /**
+     * 按脚本名和返回类型缓存的脚本对象
+     */
+    private final ConcurrentMap<String, RedisScript<?>> scripts = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() throws IOException {
+        Map<String, String> loaded = new HashMap<>();
+        Resource[] resources = new PathMatchingResourcePatternResolver(resourceLoader).getResources(SCRIPT_LOCATION);
+        for (Resource resource : resources) {
+            String filename = resource.getFilename();
+            if (filename == null || !filename.endsWith(SCRIPT_SUFFIX)) {
+                continue;
+            }
+            String name = filename.substring(0, filename.length() - SCRIPT_SUFFIX.length());
+            loaded.put(name, StreamUtils.copyToString(resource.getInputStream(), StandardCharsets.UTF_8));
+        }
+        scriptTexts = Collections.unmodifiableMap(loaded);
+        log.info("Loaded {} Redis Lua scripts: {}", loaded.size(), loaded.keySet());
+    }
+
+    /**
+     * 获取脚本
+     *
+     * @param name       脚本名，即resources/lua下的文件名，不含.lua
+     * @param resultType 返回值类型
+     */
+    @SuppressWarnings("unchecked")
+    public <T> RedisScript<T> get(String name, Class<T> resultType) {
+        return (RedisScript<T>) scripts.computeIfAbsent(name + "#" + resultType.getName(), k -> {
+            String text = scriptTexts.get(name);
+            if (text == null) {
+                throw new RenException("Redis script not found: " + name);
+            }
+            return new DefaultRedisScript<>(text, resultType);
+        });
+    }
+
+    /**
+     * 已注册的脚本名
+     */
+    public Set<String> getNames() {
+        return scriptTexts.keySet();
+    }
+}
@@ -0,0 +1,166 @@
+package xiaozhi.common.redis;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 缓存未命中时的合并加载
+ * <p>
+ * 同一节点上同一Key的并发未命中只由一个线程查询数据库，其余线程等待其结果；
+ * 节点之间通过Redis租约互斥，未拿到租约的节点轮询缓存等待持有者回填，超时后自行加载。
+ * 用于Redis被清空后大量设备同时读取同一批热点数据的场景
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RedisSingleFlight {
+    /**
+     * 租约过期时长，超过该时长视为持有者已失败，单位：秒
+     */
+    private static final long LEASE_EXPIRE = 10L;
+    /**
+     * 未拿到租约时等待其他节点回填的最长时间，单位：毫秒
+     */
+    private static final long WAIT_TIMEOUT_MS = 3000L;
+    private static final long POLL_INTERVAL_MS = 50L;
+
+    private final RedisUtils redisUtils;
+
+    private final ConcurrentMap<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong dbLoads = new AtomicLong();
+    private final AtomicLong localShared = new AtomicLong();
+    private final AtomicLong remoteShared = new AtomicLong();
+    private final AtomicLong leaseTimeouts = new AtomicLong();
+
+    /**
+     * 合并加载
+     *
+     * @param key         缓存Key，同一Key的加载会被合并
+     * @param cacheReader 读取缓存，用于等待其他节点回填
+     * @param dbLoader    从数据库加载
+     * @param cacheWriter 回填缓存，加载结果为null时不调用
+     * @return 加载结果
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T load(String key, Supplier<T> cacheReader, Supplier<T> dbLoader, Consumer<T> cacheWriter) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            localShared.incrementAndGet();
+            return (T) await(existing);
+        }
+        try {
+            T value = loadWithLease(key, cacheReader, dbLoader, cacheWriter);
+            future.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    /**
+     * 加载统计信息
+     */
+    public Map<String, Long> getStats() {
+        return Map.of(
+                "dbLoads", dbLoads.get(),
+                "localShared", localShared.get(),
+                "remoteShared", remoteShared.get(),
+                "leaseTimeouts", leaseTimeouts.get(),
+                "inFlight", (long) inFlight.size());
+    }
+
+    private <T> T loadWithLease(String key, Supplier<T> cacheReader, Supplier<T> dbLoader, Consumer<T> cacheWriter) {
+        String leaseKey = RedisKeys.getLoadLeaseKey(key);
+        String token = UUID.randomUUID().toString();
+        Boolean acquired = redisUtils.setIfAbsent(leaseKey, token, LEASE_EXPIRE);
+        // 未开启Redis时返回null，直接加载
+        if (!Boolean.FALSE.equals(acquired)) {
+            try {
+                // 上一个持有者可能在本节点未命中之后、获取租约之前刚回填缓存，再读一次避免重复加载
+                if (Boolean.TRUE.equals(acquired)) {
+                    T cached = cacheReader.get();
+                    if (cached != null) {
+                        remoteShared.incrementAndGet();
+                        return cached;
+                    }
+                }
+                return loadFromDb(dbLoader, cacheWriter);
+            } finally {
+                if (Boolean.TRUE.equals(acquired)) {
+                    releaseLease(leaseKey, token);
+                }
+            }
+        }
+
+        // 其他节点正在加载，等待其回填缓存
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(WAIT_TIMEOUT_MS);
+        while (System.nanoTime() < deadline) {
+            try {
+                Thread.sleep(POLL_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            T value = cacheReader.get();
+            if (value != null) {
+                remoteShared.incrementAndGet();
+                return value;
+            }
+            // 租约已释放但缓存仍为空，说明对方加载结果为空或失败
+            if (redisUtils.get(leaseKey) == null) {
+                break;
+            }
+        }
+        leaseTimeouts.incrementAndGet();
+        return loadFromDb(dbLoader, cacheWriter);
+    }
+
+    private <T> T loadFromDb(Supplier<T> dbLoader, Consumer<T> cacheWriter) {
+        dbLoads.incrementAndGet();
+        T value = dbLoader.get();
+        if (value != null) {
+            cacheWriter.accept(value);
+        }
+        return value;
+    }
+
+    private void releaseLease(String leaseKey, String token) {
+        try {
+            // 租约可能已过期并被其他节点获取，只删除自己的
+            if (token.equals(redisUtils.get(leaseKey))) {
+                redisUtils.delete(leaseKey);
+            }
+        } catch (Exception e) {
+            log.warn("Failed to release load lease {}", leaseKey, e);
+        }
+    }
+
+    private static Object await(CompletableFuture<Object> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
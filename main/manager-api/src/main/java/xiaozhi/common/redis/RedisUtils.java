@@ -1,19 +1,25 @@
 package xiaozhi.common.redis;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.Cursor;
 import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.SessionCallback;
 import org.springframework.stereotype.Component;
 
 import jakarta.annotation.Resource;
-import xiaozhi.common.utils.ResourcesUtils;
 
 /**
  * Redis工具类
@@ -26,7 +32,10 @@ public class RedisUtils {
     private RedisTemplate<String, Object> redisTemplate;
 
     @Autowired
-    private ResourcesUtils resourceUtils;
+    private RedisScriptRegistry scriptRegistry;
+
+    @Autowired
+    private RedisMetrics redisMetrics;
 
     /**
      * 默认过期时长为24小时，单位：秒
@@ -61,12 +70,14 @@ public class RedisUtils {
         return redisTemplate.opsForValue().decrement(key, 1L);
     }
 
-
-
+    /**
+     * 写入并设置过期时长，SET EX一条命令完成
+     */
     public void set(String key, Object value, long expire) {
-        redisTemplate.opsForValue().set(key, value);
-        if (expire != NOT_EXPIRE) {
-            expire(key, expire);
+        if (expire == NOT_EXPIRE) {
+            redisTemplate.opsForValue().set(key, value);
+        } else {
+            redisTemplate.opsForValue().set(key, value, expire, TimeUnit.SECONDS);
         }
     }
 
@@ -74,11 +85,20 @@ public class RedisUtils {
         set(key, value, DEFAULT_EXPIRE);
     }
 
-    public Object get(String key, long expire) {
-        Object value = redisTemplate.opsForValue().get(key);
-        if (expire != NOT_EXPIRE) {
-            expire(key, expire);
+    public Boolean setIfAbsent(String key, Object value, long expire) {
+        if (expire == NOT_EXPIRE) {
+            return redisTemplate.opsForValue().setIfAbsent(key, value);
         }
+        return redisTemplate.opsForValue().setIfAbsent(key, value, expire, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 读取并刷新过期时长，GETEX一条命令完成
+     */
+    public Object get(String key, long expire) {
+        Object value = expire == NOT_EXPIRE ? redisTemplate.opsForValue().get(key)
+                : redisTemplate.opsForValue().getAndExpire(key, Duration.ofSeconds(expire));
+        redisMetrics.recordHit(key, value != null);
         return value;
     }
 
@@ -86,6 +106,57 @@ public class RedisUtils {
         return get(key, NOT_EXPIRE);
     }
 
+    /**
+     * 批量读取，MGET一次往返
+     *
+     * @return 与keys顺序一致的值列表，不存在的Key对应null
+     */
+    public List<Object> multiGet(List<String> keys) {
+        if (keys.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Object> values = redisTemplate.opsForValue().multiGet(keys);
+        if (values == null) {
+            values = Collections.nCopies(keys.size(), null);
+        }
+        for (int i = 0; i < keys.size(); i++) {
+            redisMetrics.recordHit(keys.get(i), values.get(i) != null);
+        }
+        return values;
+    }
+
+    /**
+     * 批量写入并设置过期时长，各Key以SET EX流水线写入，一次往返
+     */
+    public void multiSet(Map<String, Object> values, long expire) {
+        if (values.isEmpty()) {
+            return;
+        }
+        if (expire == NOT_EXPIRE) {
+            redisTemplate.opsForValue().multiSet(values);
+            return;
+        }
+        pipeline(operations -> values.forEach(
+                (key, value) -> operations.opsForValue().set(key, value, expire, TimeUnit.SECONDS)));
+    }
+
+    /**
+     * 以流水线执行多条命令，一次往返
+     *
+     * @param commands 在回调中执行的命令，回调内命令的返回值均为null
+     * @return 各命令的执行结果
+     */
+    public List<Object> pipeline(Consumer<RedisOperations<String, Object>> commands) {
+        return redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                commands.accept((RedisOperations<String, Object>) operations);
+                return null;
+            }
+        });
+    }
+
     public void delete(String key) {
         redisTemplate.delete(key);
     }
@@ -95,12 +166,16 @@ public class RedisUtils {
     }
 
     public Object hGet(String key, String field) {
-        return redisTemplate.opsForHash().get(key, field);
+        Object value = redisTemplate.opsForHash().get(key, field);
+        redisMetrics.recordHit(key, value != null);
+        return value;
     }
 
     public Map<String, Object> hGetAll(String key) {
         HashOperations<String, String, Object> hashOperations = redisTemplate.opsForHash();
-        return hashOperations.entries(key);
+        Map<String, Object> entries = hashOperations.entries(key);
+        redisMetrics.recordHit(key, !entries.isEmpty());
+        return entries;
     }
 
     public void hMSet(String key, Map<String, Object> map) {
@@ -108,11 +183,7 @@ public class RedisUtils {
     }
 
     public void hMSet(String key, Map<String, Object> map, long expire) {
-        redisTemplate.opsForHash().putAll(key, map);
-
-        if (expire != NOT_EXPIRE) {
-            expire(key, expire);
-        }
+        writeWithExpire(key, expire, operations -> operations.opsForHash().putAll(key, map));
     }
 
     public void hSet(String key, String field, Object value) {
@@ -120,17 +191,29 @@ public class RedisUtils {
     }
 
     public void hSet(String key, String field, Object value, long expire) {
-        redisTemplate.opsForHash().put(key, field, value);
-
-        if (expire != NOT_EXPIRE) {
-            expire(key, expire);
-        }
+        writeWithExpire(key, expire, operations -> operations.opsForHash().put(key, field, value));
     }
 
     public void expire(String key, long expire) {
         redisTemplate.expire(key, expire, TimeUnit.SECONDS);
     }
 
+    /**
+     * 写入并设置过期时长，两条命令放在同一事务中以流水线发送，一次往返且不会出现没有过期时长的Key
+     */
+    private void writeWithExpire(String key, long expire, Consumer<RedisOperations<String, Object>> write) {
+        if (expire == NOT_EXPIRE) {
+            write.accept(redisTemplate);
+            return;
+        }
+        pipeline(operations -> {
+            operations.multi();
+            write.accept(operations);
+            operations.expire(key, expire, TimeUnit.SECONDS);
+            operations.exec();
+        });
+    }
+
     public void hDel(String key, Object... fields) {
         redisTemplate.opsForHash().delete(key, fields);
     }
@@ -140,34 +223,75 @@ public class RedisUtils {
     }
 
     public void leftPush(String key, Object value, long expire) {
-        redisTemplate.opsForList().leftPush(key, value);
-
-        if (expire != NOT_EXPIRE) {
-            expire(key, expire);
-        }
+        writeWithExpire(key, expire, operations -> operations.opsForList().leftPush(key, value));
     }
 
     public Object rightPop(String key) {
         return redisTemplate.opsForList().rightPop(key);
     }
 
+    public Long sAdd(String key, Object... values) {
+        return redisTemplate.opsForSet().add(key, values);
+    }
+
+    public List<Object> sPop(String key, long count) {
+        return redisTemplate.opsForSet().pop(key, count);
+    }
+
+    public Long sSize(String key) {
+        return redisTemplate.opsForSet().size(key);
+    }
+
+    public Set<Object> sMembers(String key) {
+        return redisTemplate.opsForSet().members(key);
+    }
+
+    public void publish(String channel, Object message) {
+        redisTemplate.convertAndSend(channel, message);
+    }
+
 
     /**
-     * 清空所有 Redis 数据库中的所有键
+     * 增量遍历匹配的Key，每批回调一次，不阻塞Redis
+     *
+     * @param pattern  匹配模式
+     * @param count    每次SCAN的数量提示
+     * @param consumer 每批Key的处理
      */
-    public void emptyAll() {
-        // Lua 脚本 FLUSHALL是redis清空所有库的命令
-        String luaScript =resourceUtils.loadString("lua/emptyAll.lua");
-
-        // 创建 DefaultRedisScript 对象
-        DefaultRedisScript<Void> redisScript = new DefaultRedisScript<>();
-        redisScript.setScriptText(luaScript); // 设置 Lua 脚本内容
-        redisScript.setResultType(Void.class); // 设置返回值类型
+    public void scan(String pattern, int count, Consumer<List<String>> consumer) {
+        ScanOptions options = ScanOptions.scanOptions().match(pattern).count(count).build();
+        List<String> batch = new ArrayList<>(count);
+        try (Cursor<String> cursor = redisTemplate.scan(options)) {
+            while (cursor.hasNext()) {
+                batch.add(cursor.next());
+                if (batch.size() >= count) {
+                    consumer.accept(batch);
+                    batch = new ArrayList<>(count);
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            consumer.accept(batch);
+        }
+    }
 
-        // 执行 Lua 脚本
-        List<String> keys = Collections.emptyList(); // 如果脚本不依赖 key，可以传入空列表
-        redisTemplate.execute(redisScript, keys);
+    /**
+     * 异步删除Key，不阻塞Redis
+     */
+    public Long unlink(Collection<String> keys) {
+        return redisTemplate.unlink(keys);
+    }
 
+    /**
+     * 执行resources/lua下的脚本，优先EVALSHA
+     *
+     * @param name       脚本名，即文件名，不含.lua
+     * @param resultType 返回值类型
+     * @param keys       脚本中的KEYS
+     * @param args       脚本中的ARGV
+     */
+    public <T> T executeScript(String name, Class<T> resultType, List<String> keys, Object... args) {
+        return redisTemplate.execute(scriptRegistry.get(name, resultType), keys, args);
     }
 
     /**
@@ -178,18 +302,7 @@ public class RedisUtils {
      * @return 返回key的值
      */
     public String getKeyOrCreate(String key, String defaultValue,Long expiresInSecond) {
-        // Lua 脚本
-        String luaScript = resourceUtils.loadString("lua/getKeyOrCreate.lua");
-
-        DefaultRedisScript<String> redisScript = new DefaultRedisScript<>();
-        redisScript.setScriptText(luaScript);
-        redisScript.setResultType(String.class);
-
-        // 执行 Lua 脚本
-        List<String> keys = Collections.singletonList(key);
-        return redisTemplate.execute(redisScript, keys, defaultValue,expiresInSecond);
+        return executeScript("getKeyOrCreate", String.class, Collections.singletonList(key), defaultValue,
+                expiresInSecond);
     }
-
-
-
-}
\ No newline at end of file
+}
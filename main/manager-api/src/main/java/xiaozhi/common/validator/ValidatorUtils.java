@@ -1,12 +1,11 @@
 package xiaozhi.common.validator;
 
-import java.util.Locale;
 import java.util.Set;
 import java.util.regex.Pattern;
 
 import org.hibernate.validator.messageinterpolation.ResourceBundleMessageInterpolator;
-import org.springframework.context.i18n.LocaleContextHolder;
 import org.springframework.context.support.ResourceBundleMessageSource;
+import org.springframework.validation.beanvalidation.LocaleContextMessageInterpolator;
 import org.springframework.validation.beanvalidation.MessageSourceResourceBundleLocator;
 
 import jakarta.validation.ConstraintViolation;
@@ -24,9 +23,22 @@ public class ValidatorUtils {
         ResourceBundleMessageSource bundleMessageSource = new ResourceBundleMessageSource();
         bundleMessageSource.setDefaultEncoding("UTF-8");
         bundleMessageSource.setBasenames("i18n/validation");
+        // 找不到请求语言的资源文件时使用validation.properties，而不是服务器默认语言
+        bundleMessageSource.setFallbackToSystemLocale(false);
         return bundleMessageSource;
     }
 
+    /**
+     * Validator线程安全，并会缓存每个类的约束元数据，因此全局只构建一次；
+     * 提示信息按当前请求的语言（LocaleContextHolder）解析
+     */
+    private static class ValidatorHolder {
+        private static final Validator VALIDATOR = Validation.byDefaultProvider().configure()
+                .messageInterpolator(new LocaleContextMessageInterpolator(new ResourceBundleMessageInterpolator(
+                        new MessageSourceResourceBundleLocator(getMessageSource()))))
+                .buildValidatorFactory().getValidator();
+    }
+
     /**
      * 校验对象
      *
@@ -35,12 +47,7 @@ public class ValidatorUtils {
      */
     public static void validateEntity(Object object, Class<?>... groups)
             throws RenException {
-        Locale.setDefault(LocaleContextHolder.getLocale());
-        Validator validator = Validation.byDefaultProvider().configure().messageInterpolator(
-                new ResourceBundleMessageInterpolator(new MessageSourceResourceBundleLocator(getMessageSource())))
-                .buildValidatorFactory().getValidator();
-
-        Set<ConstraintViolation<Object>> constraintViolations = validator.validate(object, groups);
+        Set<ConstraintViolation<Object>> constraintViolations = ValidatorHolder.VALIDATOR.validate(object, groups);
         if (!constraintViolations.isEmpty()) {
             ConstraintViolation<Object> constraint = constraintViolations.iterator().next();
             throw new RenException(constraint.getMessage());
@@ -55,7 +62,7 @@ public class ValidatorUtils {
      * - +12345678900
      * - +447123456789
      */
-    private static final String INTERNATIONAL_PHONE_REGEX = "^\\+[1-9]\\d{0,3}[1-9]\\d{4,14}$";
+    private static final Pattern INTERNATIONAL_PHONE_PATTERN = Pattern.compile("^\\+[1-9]\\d{0,3}[1-9]\\d{4,14}$");
 
     /**
      * 校验手机号是否有效
@@ -71,7 +78,6 @@ public class ValidatorUtils {
         }
 
         // 验证必须带国际区号的手机号格式
-        Pattern pattern = Pattern.compile(INTERNATIONAL_PHONE_REGEX);
-        return pattern.matcher(phone).matches();
+        return INTERNATIONAL_PHONE_PATTERN.matcher(phone).matches();
     }
 }
\ No newline at end of file
@@ -2,7 +2,6 @@ package xiaozhi.common.xss;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
@@ -10,7 +9,6 @@ import org.apache.commons.lang3.StringUtils;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 
-import cn.hutool.core.io.IoUtil;
 import jakarta.servlet.ReadListener;
 import jakarta.servlet.ServletInputStream;
 import jakarta.servlet.http.HttpServletRequest;
@@ -30,23 +28,17 @@ public class XssHttpServletRequestWrapper extends HttpServletRequestWrapper {
     @Override
     public ServletInputStream getInputStream() throws IOException {
         // 非json类型，直接返回
-        if (!MediaType.APPLICATION_JSON_VALUE.equalsIgnoreCase(super.getHeader(HttpHeaders.CONTENT_TYPE))) {
+        if (!StringUtils.startsWithIgnoreCase(super.getHeader(HttpHeaders.CONTENT_TYPE),
+                MediaType.APPLICATION_JSON_VALUE)) {
             return super.getInputStream();
         }
 
-        // 为空，直接返回
-        String json = IoUtil.readUtf8(super.getInputStream());
-        if (StringUtils.isBlank(json)) {
-            return super.getInputStream();
-        }
-
-        // xss过滤
-        json = xssEncode(json);
-        final ByteArrayInputStream bis = new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+        // xss过滤，只处理JSON中的字符串值
+        final ByteArrayInputStream bis = new ByteArrayInputStream(XssJsonSanitizer.sanitize(super.getInputStream()));
         return new ServletInputStream() {
             @Override
             public boolean isFinished() {
-                return true;
+                return bis.available() == 0;
             }
 
             @Override
@@ -63,6 +55,11 @@ public class XssHttpServletRequestWrapper extends HttpServletRequestWrapper {
             public int read() {
                 return bis.read();
             }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                return bis.read(b, off, len);
+            }
         };
     }
 
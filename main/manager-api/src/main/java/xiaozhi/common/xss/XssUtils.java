@@ -9,12 +9,16 @@ import org.jsoup.safety.Safelist;
  * Website: https://www.renren.io
  */
 public class XssUtils extends Safelist {
+    /**
+     * XSS过滤白名单，只在类加载时构建一次，构建后不再修改，可在多线程间共享
+     */
+    private static final Safelist XSS_WHITELIST = xssWhitelist();
 
     /**
      * XSS过滤
      */
     public static String filter(String html) {
-        return Jsoup.clean(html, xssWhitelist());
+        return Jsoup.clean(html, XSS_WHITELIST);
     }
 
     /**
@@ -0,0 +1,57 @@
+package xiaozhi.modules.agent.audio;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.springframework.core.io.Resource;
+
+/**
+ * 聊天音频存储
+ * <p>
+ * 音频按内容寻址保存，数据库只记录返回的存储Key，相同内容的音频只保存一份。
+ * 删除音频记录时不删除内容，由定时清理删除不再被任何记录引用的音频
+ */
+public interface AudioStore {
+
+    /**
+     * 保存音频
+     *
+     * @param audioData 音频数据
+     * @return 存储Key
+     */
+    String put(byte[] audioData);
+
+    /**
+     * 读取音频，供流式输出
+     *
+     * @param storageKey 存储Key
+     * @return 音频资源，不存在时返回null
+     */
+    Resource get(String storageKey);
+
+    /**
+     * 音频是否存在
+     *
+     * @param storageKey 存储Key
+     * @return 是否存在
+     */
+    boolean exists(String storageKey);
+
+    /**
+     * 遍历最后写入时间早于指定时间的音频，每批回调一次
+     *
+     * @param olderThan 时间戳，单位：毫秒
+     * @param batchSize 每批数量
+     * @param consumer  每批存储Key的处理
+     */
+    void scan(long olderThan, int batchSize, Consumer<List<String>> consumer);
+
+    /**
+     * 删除音频，最后写入时间不早于指定时间时不删除，避免删除刚被重新保存的相同内容
+     *
+     * @param storageKey 存储Key
+     * @param olderThan  时间戳，单位：毫秒
+     * @return 是否已删除
+     */
+    boolean delete(String storageKey, long olderThan);
+}
@@ -0,0 +1,167 @@
+package xiaozhi.modules.agent.audio;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+
+import cn.hutool.crypto.digest.DigestUtil;
+import lombok.extern.slf4j.Slf4j;
+import xiaozhi.common.exception.RenException;
+
+/**
+ * 本地文件系统音频存储
+ * <p>
+ * 存储Key为音频内容的SHA-256，文件按Key前两级各两位分目录存放，如 ab/cd/abcd...，
+ * 避免单个目录下文件过多。写入先落临时文件再原子重命名，读取方不会看到写了一半的文件。
+ * 保存已存在的内容时刷新文件修改时间，清理只删除修改时间足够早的文件
+ */
+@Slf4j
+public class LocalAudioStore implements AudioStore {
+    private static final Pattern KEY_PATTERN = Pattern.compile("[0-9a-f]{64}");
+
+    private final Path rootDir;
+
+    public LocalAudioStore(Path rootDir) {
+        this.rootDir = rootDir.toAbsolutePath().normalize();
+    }
+
+    @Override
+    public String put(byte[] audioData) {
+        String storageKey = DigestUtil.sha256Hex(audioData);
+        Path target = resolve(storageKey);
+        if (Files.exists(target) && touch(target)) {
+            return storageKey;
+        }
+        Path tempFile = null;
+        try {
+            Files.createDirectories(target.getParent());
+            tempFile = Files.createTempFile(target.getParent(), storageKey, ".tmp");
+            Files.write(tempFile, audioData);
+            try {
+                Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, target);
+            }
+        } catch (FileAlreadyExistsException e) {
+            // 相同内容已由其他线程写入
+            log.debug("Audio {} already stored", storageKey);
+        } catch (IOException e) {
+            throw new RenException("Failed to store audio: " + e.getMessage());
+        } finally {
+            if (tempFile != null) {
+                try {
+                    Files.deleteIfExists(tempFile);
+                } catch (IOException e) {
+                    log.warn("Failed to delete temp audio file {}", tempFile, e);
+                }
+            }
+        }
+        return storageKey;
+    }
+
+    @Override
+    public Resource get(String storageKey) {
+        if (!isValidKey(storageKey)) {
+            return null;
+        }
+        Path path = resolve(storageKey);
+        return Files.isRegularFile(path) ? new FileSystemResource(path) : null;
+    }
+
+    @Override
+    public boolean exists(String storageKey) {
+        return isValidKey(storageKey) && Files.isRegularFile(resolve(storageKey));
+    }
+
+    @Override
+    public void scan(long olderThan, int batchSize, Consumer<List<String>> consumer) {
+        if (!Files.isDirectory(rootDir)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(rootDir)) {
+            List<String> batch = new ArrayList<>(batchSize);
+            Iterator<Path> iterator = files.iterator();
+            while (iterator.hasNext()) {
+                Path path = iterator.next();
+                String storageKey = path.getFileName().toString();
+                if (!isValidKey(storageKey) || !isOlderThan(path, olderThan)) {
+                    continue;
+                }
+                batch.add(storageKey);
+                if (batch.size() >= batchSize) {
+                    consumer.accept(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                consumer.accept(batch);
+            }
+        } catch (IOException e) {
+            throw new RenException("Failed to scan audio store: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public boolean delete(String storageKey, long olderThan) {
+        if (!isValidKey(storageKey)) {
+            return false;
+        }
+        Path path = resolve(storageKey);
+        if (!isOlderThan(path, olderThan)) {
+            return false;
+        }
+        try {
+            return Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Failed to delete audio file {}", path, e);
+            return false;
+        }
+    }
+
+    /**
+     * 刷新修改时间，文件已被删除时返回false，由调用方重新写入
+     */
+    private boolean touch(Path path) {
+        try {
+            Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        } catch (IOException e) {
+            log.warn("Failed to touch audio file {}", path, e);
+            return true;
+        }
+    }
+
+    private static boolean isOlderThan(Path path, long olderThan) {
+        try {
+            return Files.isRegularFile(path) && Files.getLastModifiedTime(path).toMillis() < olderThan;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private Path resolve(String storageKey) {
+        return rootDir.resolve(storageKey.substring(0, 2))
+                .resolve(storageKey.substring(2, 4))
+                .resolve(storageKey);
+    }
+
+    private boolean isValidKey(String storageKey) {
+        return storageKey != null && KEY_PATTERN.matcher(storageKey).matches();
+    }
+}
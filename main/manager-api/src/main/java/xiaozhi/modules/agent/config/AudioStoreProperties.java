@@ -0,0 +1,25 @@
+package xiaozhi.modules.agent.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * 聊天音频存储配置项
+ */
+@Data
+@ConfigurationProperties(prefix = "renren.audio-store")
+public class AudioStoreProperties {
+    /**
+     * 是否将新音频写入文件存储，关闭时仍写入ai_agent_chat_audio表的BLOB字段
+     */
+    private boolean enabled = true;
+    /**
+     * 本地存储根目录，相对路径基于运行目录
+     */
+    private String localDir = "uploadfile/chat-audio";
+    /**
+     * 迁移历史BLOB时每批处理的条数
+     */
+    private int migrateBatchSize = 100;
+}
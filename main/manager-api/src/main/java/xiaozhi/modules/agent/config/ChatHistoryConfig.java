@@ -0,0 +1,28 @@
+package xiaozhi.modules.agent.config;
+
+import java.nio.file.Paths;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import xiaozhi.modules.agent.audio.AudioStore;
+import xiaozhi.modules.agent.audio.LocalAudioStore;
+
+/**
+ * 聊天记录配置
+ */
+@Configuration
+@EnableConfigurationProperties({ ChatHistoryProperties.class, AudioStoreProperties.class })
+public class ChatHistoryConfig {
+
+    /**
+     * 默认使用本地文件存储，可自行注册其他AudioStore实现替换
+     */
+    @Bean
+    @ConditionalOnMissingBean(AudioStore.class)
+    public AudioStore audioStore(AudioStoreProperties properties) {
+        return new LocalAudioStore(Paths.get(properties.getLocalDir()));
+    }
+}
@@ -0,0 +1,33 @@
+package xiaozhi.modules.agent.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * 聊天记录写入配置项
+ */
+@Data
+@ConfigurationProperties(prefix = "renren.chat-history")
+public class ChatHistoryProperties {
+    /**
+     * 是否开启异步批量写入，关闭时每条聊天记录同步写入
+     */
+    private boolean batchEnabled = false;
+    /**
+     * 写入队列容量
+     */
+    private int queueCapacity = 10000;
+    /**
+     * 单批最大写入条数
+     */
+    private int batchSize = 500;
+    /**
+     * 最长攒批时间，单位：毫秒
+     */
+    private long flushIntervalMs = 200;
+    /**
+     * 队列满时上报线程的最长等待时间，超时后改为同步写入，单位：毫秒
+     */
+    private long offerTimeoutMs = 50;
+}
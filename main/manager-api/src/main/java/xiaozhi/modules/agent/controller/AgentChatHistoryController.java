@@ -1,5 +1,9 @@
 package xiaozhi.modules.agent.controller;
 
+import java.util.Map;
+
+import org.apache.shiro.authz.annotation.RequiresPermissions;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -12,6 +16,7 @@ import lombok.RequiredArgsConstructor;
 import xiaozhi.common.utils.Result;
 import xiaozhi.modules.agent.dto.AgentChatHistoryReportDTO;
 import xiaozhi.modules.agent.service.biz.AgentChatHistoryBizService;
+import xiaozhi.modules.agent.service.impl.AgentChatHistoryBatchWriter;
 
 @Tag(name = "Agent Chat-history Management")
 @RequiredArgsConstructor
@@ -19,6 +24,7 @@ import xiaozhi.modules.agent.service.biz.AgentChatHistoryBizService;
 @RequestMapping("/agent/chat-history")
 public class AgentChatHistoryController {
     private final AgentChatHistoryBizService agentChatHistoryBizService;
+    private final AgentChatHistoryBatchWriter chatHistoryBatchWriter;
 
     /**
      * 小智服务聊天上报请求
@@ -33,4 +39,14 @@ public class AgentChatHistoryController {
         Boolean result = agentChatHistoryBizService.report(request);
         return new Result<Boolean>().ok(result);
     }
+
+    /**
+     * 聊天记录批量写入状态，包括队列深度和已写入条数
+     */
+    @Operation(summary = "Chat history ingest stats")
+    @GetMapping("/ingest-stats")
+    @RequiresPermissions("sys:role:superAdmin")
+    public Result<Map<String, Object>> ingestStats() {
+        return new Result<Map<String, Object>>().ok(chatHistoryBatchWriter.getStats());
+    }
 }
@@ -1,11 +1,13 @@
 package xiaozhi.modules.agent.controller;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.shiro.authz.annotation.RequiresPermissions;
+import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -34,6 +36,7 @@ import xiaozhi.common.redis.RedisUtils;
 import xiaozhi.common.user.UserDetail;
 import xiaozhi.common.utils.Result;
 import xiaozhi.common.utils.ResultUtils;
+import xiaozhi.modules.agent.config.AudioStoreProperties;
 import xiaozhi.modules.agent.dto.AgentChatHistoryDTO;
 import xiaozhi.modules.agent.dto.AgentChatSessionDTO;
 import xiaozhi.modules.agent.dto.AgentCreateDTO;
@@ -64,6 +67,7 @@ public class AgentController {
     private final AgentChatAudioService agentChatAudioService;
     private final AgentPluginMappingService agentPluginMappingService;
     private final RedisUtils redisUtils;
+    private final AudioStoreProperties audioStoreProperties;
 
     @GetMapping("/list")
     @Operation(summary = "Get user's Agent list")
@@ -186,8 +190,7 @@ public class AgentController {
     @Operation(summary = "get audio download ID")
     @RequiresPermissions("sys:role:normal")
     public Result<String> getAudioId(@PathVariable("audioId") String audioId) {
-        byte[] audioData = agentChatAudioService.getAudio(audioId);
-        if (audioData == null) {
+        if (!agentChatAudioService.existsAudio(audioId)) {
             return new Result<String>().error("Audio does not exist");
         }
         String uuid = UUID.randomUUID().toString();
@@ -197,22 +200,42 @@ public class AgentController {
 
     @GetMapping("/play/{uuid}")
     @Operation(summary = "play audio")
-    public ResponseEntity<byte[]> playAudio(@PathVariable("uuid") String uuid) {
+    public ResponseEntity<Resource> playAudio(@PathVariable("uuid") String uuid) {
 
         String audioId = (String) redisUtils.get(RedisKeys.getAgentAudioIdKey(uuid));
         if (StringUtils.isBlank(audioId)) {
             return ResponseEntity.notFound().build();
         }
 
-        byte[] audioData = agentChatAudioService.getAudio(audioId);
-        if (audioData == null) {
+        Resource audio = agentChatAudioService.getAudioResource(audioId);
+        if (audio == null) {
             return ResponseEntity.notFound().build();
         }
         redisUtils.delete(RedisKeys.getAgentAudioIdKey(uuid));
         return ResponseEntity.ok()
                 .contentType(MediaType.APPLICATION_OCTET_STREAM)
                 .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"play.wav\"")
-                .body(audioData);
+                .body(audio);
+    }
+
+    @PostMapping("/audio-migration")
+    @Operation(summary = "Migrate chat audio blobs to audio store")
+    @RequiresPermissions("sys:role:superAdmin")
+    public Result<Map<String, Object>> migrateAudio(
+            @RequestParam(value = "maxBatches", defaultValue = "10") Integer maxBatches) {
+        // 每次调用最多迁移maxBatches批，剩余数据可重复调用继续迁移
+        int migrated = 0;
+        for (int i = 0; i < maxBatches; i++) {
+            int count = agentChatAudioService.migrateBlobBatch(audioStoreProperties.getMigrateBatchSize());
+            if (count == 0) {
+                break;
+            }
+            migrated += count;
+        }
+        Map<String, Object> result = new HashMap<>();
+        result.put("migrated", migrated);
+        result.put("remaining", agentChatAudioService.countBlobAudio());
+        return new Result<Map<String, Object>>().ok(result);
     }
 
 }
\ No newline at end of file
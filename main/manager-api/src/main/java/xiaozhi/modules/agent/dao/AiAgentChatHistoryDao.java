@@ -1,6 +1,9 @@
 package xiaozhi.modules.agent.dao;
 
+import java.util.List;
+
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 
@@ -35,4 +38,11 @@ public interface AiAgentChatHistoryDao extends BaseMapper<AgentChatHistoryEntity
      * @param agentId 智能体ID
      */
     void deleteAudioIdByAgentId(String agentId);
+
+    /**
+     * 批量插入聊天记录（单条多行INSERT）
+     *
+     * @param list 聊天记录
+     */
+    void insertBatch(@Param("list") List<AgentChatHistoryEntity> list);
 }
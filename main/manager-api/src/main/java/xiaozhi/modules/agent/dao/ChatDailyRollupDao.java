@@ -0,0 +1,49 @@
+package xiaozhi.modules.agent.dao;
+
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import xiaozhi.modules.agent.entity.ChatDailyRollupEntity;
+
+/**
+ * 每日聊天次数汇总Dao对象
+ */
+@Mapper
+public interface ChatDailyRollupDao {
+    /**
+     * 批量累加各用户、智能体当天的聊天次数，不存在时插入
+     *
+     * @param list 已按日期、用户、智能体合并的增量
+     */
+    void incrementBatch(List<ChatDailyRollupEntity> list);
+
+    /**
+     * 指定日期之前是否有汇总
+     *
+     * @param day 日期（不含）
+     * @return 有汇总时返回1，否则返回null
+     */
+    Integer existsBefore(@Param("day") LocalDate day);
+
+    /**
+     * 删除指定日期的汇总
+     *
+     * @param day 日期
+     * @return 删除的行数
+     */
+    int deleteByDay(@Param("day") LocalDate day);
+
+    /**
+     * 从聊天记录表重新汇总指定日期，时间范围由调用方按应用时区计算，与增量汇总的日期划分一致
+     *
+     * @param day   日期
+     * @param start 当天开始时间（含）
+     * @param end   次日开始时间（不含）
+     * @return 写入的行数
+     */
+    int rebuildDay(@Param("day") LocalDate day, @Param("start") Date start, @Param("end") Date end);
+}
@@ -1,6 +1,7 @@
 package xiaozhi.modules.agent.entity;
 
 import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
 import com.baomidou.mybatisplus.annotation.TableId;
 import com.baomidou.mybatisplus.annotation.TableName;
 
@@ -23,7 +24,18 @@ public class AgentChatAudioEntity {
     private String id;
 
     /**
-     * 音频opus数据
+     * 音频opus数据，已迁移到文件存储的记录为空；默认查询不加载该字段
      */
+    @TableField(select = false)
     private byte[] audio;
-}
\ No newline at end of file
+
+    /**
+     * 音频在AudioStore中的存储Key
+     */
+    private String storageKey;
+
+    /**
+     * 音频大小，单位：字节
+     */
+    private Long audioSize;
+}
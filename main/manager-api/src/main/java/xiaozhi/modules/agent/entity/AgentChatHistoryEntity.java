@@ -78,4 +78,10 @@ public class AgentChatHistoryEntity {
      */
     @TableField(value = "updated_at")
     private Date updatedAt;
+
+    /**
+     * 设备所属用户ID，不入库，用于统计尚未写入的聊天次数
+     */
+    @TableField(exist = false)
+    private Long userId;
 }
@@ -0,0 +1,39 @@
+package xiaozhi.modules.agent.entity;
+
+import java.time.LocalDate;
+
+import com.baomidou.mybatisplus.annotation.TableName;
+
+import lombok.Data;
+
+/**
+ * 每日聊天次数汇总表
+ */
+@Data
+@TableName("chat_daily_rollup")
+public class ChatDailyRollupEntity {
+    /**
+     * 日期
+     */
+    private LocalDate day;
+
+    /**
+     * 设备所属用户ID
+     */
+    private Long userId;
+
+    /**
+     * 智能体ID
+     */
+    private String agentId;
+
+    /**
+     * 用户消息数
+     */
+    private Integer userMsgs;
+
+    /**
+     * 智能体消息数
+     */
+    private Integer agentMsgs;
+}
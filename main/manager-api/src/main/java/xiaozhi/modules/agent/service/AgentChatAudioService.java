@@ -1,5 +1,7 @@
 package xiaozhi.modules.agent.service;
 
+import org.springframework.core.io.Resource;
+
 import com.baomidou.mybatisplus.extension.service.IService;
 
 import xiaozhi.modules.agent.entity.AgentChatAudioEntity;
@@ -27,4 +29,42 @@ public interface AgentChatAudioService extends IService<AgentChatAudioEntity> {
      * @return 音频数据
      */
     byte[] getAudio(String audioId);
+
+    /**
+     * 获取音频资源，文件存储的音频直接从磁盘流式读取
+     *
+     * @param audioId 音频ID
+     * @return 音频资源，不存在时返回null
+     */
+    Resource getAudioResource(String audioId);
+
+    /**
+     * 音频是否存在，不读取音频内容
+     *
+     * @param audioId 音频ID
+     * @return 是否存在
+     */
+    boolean existsAudio(String audioId);
+
+    /**
+     * 将一批仍保存在BLOB字段中的音频迁移到文件存储
+     *
+     * @param batchSize 本批最多迁移条数
+     * @return 本批迁移条数，为0表示已全部迁移
+     */
+    int migrateBlobBatch(int batchSize);
+
+    /**
+     * 仍保存在BLOB字段中的音频数量
+     *
+     * @return 待迁移数量
+     */
+    long countBlobAudio();
+
+    /**
+     * 删除文件存储中不再被任何音频记录引用的内容
+     *
+     * @return 删除的文件数
+     */
+    int sweepOrphanFiles();
 }
@@ -0,0 +1,31 @@
+package xiaozhi.modules.agent.service;
+
+import java.time.LocalDate;
+import java.util.Collection;
+
+import xiaozhi.modules.agent.entity.AgentChatHistoryEntity;
+
+/**
+ * 每日聊天次数汇总
+ * <p>
+ * 聊天记录写入后按用户、智能体、日期增量累加，管理端统计和聊天次数限制读取汇总表而不扫描聊天记录；
+ * 汇总可按日期范围从聊天记录表重建
+ */
+public interface ChatDailyRollupService {
+
+    /**
+     * 记录已写入的聊天消息，同一日期、用户、智能体的消息合并为一行累加
+     *
+     * @param rows 聊天记录，未关联用户的记录忽略
+     */
+    void record(Collection<AgentChatHistoryEntity> rows);
+
+    /**
+     * 从聊天记录表重建指定日期范围的汇总，每天单独一个事务
+     *
+     * @param from 开始日期（含）
+     * @param to   结束日期（含）
+     * @return 写入的汇总行数
+     */
+    int rebuild(LocalDate from, LocalDate to);
+}
@@ -19,9 +19,13 @@ import xiaozhi.modules.agent.entity.AgentEntity;
 import xiaozhi.modules.agent.service.AgentChatAudioService;
 import xiaozhi.modules.agent.service.AgentChatHistoryService;
 import xiaozhi.modules.agent.service.AgentService;
+import xiaozhi.modules.agent.service.ChatDailyRollupService;
 import xiaozhi.modules.agent.service.biz.AgentChatHistoryBizService;
+import xiaozhi.modules.agent.service.impl.AgentChatHistoryBatchWriter;
 import xiaozhi.modules.device.service.DeviceService;
+import xiaozhi.modules.security.oauth2.Oauth2TokenCache;
 import xiaozhi.modules.sys.entity.SysUserEntity;
+import xiaozhi.modules.sys.service.ChatCountService;
 import xiaozhi.modules.sys.service.SysParamsService;
 import xiaozhi.modules.sys.service.SysUserService;
 import xiaozhi.modules.sys.service.UserPremiumSubscriptionService;
@@ -45,9 +49,14 @@ public class AgentChatHistoryBizServiceImpl implements AgentChatHistoryBizServic
     private final SysUserService sysUserService;
     private final SysParamsService sysParamsService;
     private final UserPremiumSubscriptionService premiumSubscriptionService;
+    private final ChatCountService chatCountService;
+    private final AgentChatHistoryBatchWriter chatHistoryBatchWriter;
+    private final Oauth2TokenCache oauth2TokenCache;
+    private final ChatDailyRollupService chatDailyRollupService;
 
     /**
      * 处理聊天记录上报，包括文件上传和相关信息记录
+     * 开启批量写入时聊天记录由后台线程写入，不在本事务内，事务只覆盖音频及其他同步写入
      *
      * @param report 包含聊天上报所需信息的输入对象
      * @return 上传结果，true表示成功，false表示失败
@@ -120,12 +129,19 @@ public class AgentChatHistoryBizServiceImpl implements AgentChatHistoryBizServic
                 .createdAt(new Date(reportTime))
                 // NOTE(haotian): 2025/5/26 updateAt可以不设置，重点是createAt，而且这样可以看到上报延迟
                 .build();
+        // 入队前确定设备所属用户，批量写入器据此统计各用户尚未写入的记录数
+        entity.setUserId(findDeviceUserId(macAddress));
 
-        // 保存数据
-        agentChatHistoryService.save(entity);
+        // 保存数据，开启批量写入时入队由后台线程合并写入，并按批累加每日汇总
+        if (chatHistoryBatchWriter.isEnabled()) {
+            chatHistoryBatchWriter.submit(entity);
+        } else {
+            agentChatHistoryService.save(entity);
+            recordDailyRollup(entity);
+        }
 
-        // 同步用户的当月聊天次数计数到数据库
-        syncUserChatCount(macAddress);
+        // 同步用户的当月聊天次数计数
+        syncUserChatCount(entity);
 
         log.info("Device {} mapping agent {} report successfully", macAddress, agentId);
     }
@@ -197,10 +213,10 @@ public class AgentChatHistoryBizServiceImpl implements AgentChatHistoryBizServic
             
             log.info("=== CHAT LIMIT CHECK === Max chat count limit: {}", maxChatCount);
             
-            // 获取用户当月聊天次数（直接从数据库chat_count_month字段获取，性能更好）
-            Integer currentMonthCount = user.getChatCountMonth() != null ? user.getChatCountMonth() : 0;
+            // 获取用户当月聊天次数（从Redis计数器获取，sys_user.chat_count_month为其延迟回写的副本）
+            int currentMonthCount = chatCountService.getCurrentMonthCount(userId);
             
-            log.info("=== CHAT LIMIT CHECK === User {} current month chat count from database: {}", userId, currentMonthCount);
+            log.info("=== CHAT LIMIT CHECK === User {} current month chat count: {}", userId, currentMonthCount);
             
             // 检查是否超过限制
             if (currentMonthCount > maxChatCount) {
@@ -211,6 +227,7 @@ public class AgentChatHistoryBizServiceImpl implements AgentChatHistoryBizServic
                 user.setStatus(0); // 0 = disabled
                 user.setAutoDisabledReason("MONTHLY_CHAT_LIMIT_EXCEEDED");
                 sysUserService.updateById(user);
+                oauth2TokenCache.revoke(userId);
                 
                 log.warn("=== CHAT LIMIT CHECK === User {} account disabled due to chat limit exceeded", userId);
             } else {
@@ -226,56 +243,50 @@ public class AgentChatHistoryBizServiceImpl implements AgentChatHistoryBizServic
 
     /**
      * 同步用户聊天次数计数
-     * 每次保存聊天记录时调用，从准确的数据源同步最新聊天次数到sys_user表
+     * 每次保存聊天记录时调用，在Redis计数器中原子自增，由定时任务批量回写到sys_user表
      */
-    private void syncUserChatCount(String macAddress) {
+    private void syncUserChatCount(AgentChatHistoryEntity entity) {
+        String macAddress = entity.getMacAddress();
+        Long userId = entity.getUserId();
+        if (userId == null) {
+            log.debug("=== CHAT COUNT SYNC === No user found for device: {}", macAddress);
+            return;
+        }
         try {
             log.debug("=== CHAT COUNT SYNC === Syncing chat count for device: {}", macAddress);
             
-            // 获取设备关联的用户ID
-            xiaozhi.modules.device.entity.DeviceEntity device = deviceService.getDeviceByMacAddress(macAddress);
-            if (device == null || device.getUserId() == null) {
-                log.debug("=== CHAT COUNT SYNC === No user found for device: {}", macAddress);
-                return;
-            }
+            int currentMonthCount = chatCountService.increment(userId);
             
-            Long userId = device.getUserId();
-            String currentMonth = java.time.LocalDate.now().format(java.time.format.DateTimeFormatter.ofPattern("yyyy-MM"));
-            
-            // 获取用户信息
-            xiaozhi.modules.sys.entity.SysUserEntity user = sysUserService.selectById(userId);
-            if (user == null) {
-                log.warn("=== CHAT COUNT SYNC === User {} not found", userId);
-                return;
-            }
-            
-            // 从可靠数据源获取实际聊天次数（与Manager Portal显示的一致）
-            List<xiaozhi.modules.sys.vo.UserChatStatsVO> userStats = sysUserService.getUserChatStats();
-            xiaozhi.modules.sys.vo.UserChatStatsVO currentUserStats = userStats.stream()
-                    .filter(stat -> stat.getUserId().equals(userId))
-                    .findFirst()
-                    .orElse(null);
-            
-            if (currentUserStats != null) {
-                Integer actualCurrentMonthCount = currentUserStats.getCurrentMonthCount();
-                Integer oldCount = user.getChatCountMonth();
-                
-                // 直接存储从CHAT_COUNT_FEATURE获取的准确数值
-                user.setChatCountMonth(actualCurrentMonthCount);
-                user.setLastResetMonth(currentMonth);
-                
-                // 更新数据库
-                sysUserService.updateById(user);
-                
-                log.debug("=== CHAT COUNT SYNC === Synced chat count for user {}: {} -> {} (from reliable source)", 
-                        userId, oldCount, actualCurrentMonthCount);
-            } else {
-                log.warn("=== CHAT COUNT SYNC === Could not find chat stats for user {}", userId);
-            }
+            log.debug("=== CHAT COUNT SYNC === User {} current month chat count: {}", userId, currentMonthCount);
             
         } catch (Exception e) {
             log.error("=== CHAT COUNT SYNC === Error syncing chat count for device: {}", macAddress, e);
             // Don't throw exception to avoid affecting normal chat reporting
         }
     }
+
+    /**
+     * 累加每日聊天汇总，供管理端统计使用
+     */
+    private void recordDailyRollup(AgentChatHistoryEntity entity) {
+        try {
+            chatDailyRollupService.record(List.of(entity));
+        } catch (Exception e) {
+            log.error("Error updating chat daily rollup for device: {}", entity.getMacAddress(), e);
+            // Don't throw exception to avoid affecting normal chat reporting
+        }
+    }
+
+    /**
+     * 查询设备所属用户ID，查询失败时返回null，不影响聊天记录保存
+     */
+    private Long findDeviceUserId(String macAddress) {
+        try {
+            xiaozhi.modules.device.entity.DeviceEntity device = deviceService.getDeviceByMacAddress(macAddress);
+            return device == null ? null : device.getUserId();
+        } catch (Exception e) {
+            log.error("=== CHAT COUNT SYNC === Error finding user for device: {}", macAddress, e);
+            return null;
+        }
+    }
 }
@@ -1,34 +1,180 @@
 package xiaozhi.modules.agent.service.impl;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import xiaozhi.modules.agent.audio.AudioStore;
+import xiaozhi.modules.agent.config.AudioStoreProperties;
 import xiaozhi.modules.agent.dao.AiAgentChatAudioDao;
 import xiaozhi.modules.agent.entity.AgentChatAudioEntity;
 import xiaozhi.modules.agent.service.AgentChatAudioService;
 
 /**
  * 智能体聊天音频数据表处理service {@link AgentChatAudioService} impl
+ * <p>
+ * 开启文件存储后音频内容保存在{@link AudioStore}中，表中只保留存储Key；
+ * 未迁移的历史记录仍从BLOB字段读取。相同内容的音频共用一个文件，删除记录时不删除文件，
+ * 由每日定时清理删除不再被引用的文件
  *
  * @author Goody
  * @version 1.0, 2025/5/8
  * @since 1.0.0
  */
+@Slf4j
 @Service
+@RequiredArgsConstructor
 public class AgentChatAudioServiceImpl extends ServiceImpl<AiAgentChatAudioDao, AgentChatAudioEntity>
         implements AgentChatAudioService {
+    /**
+     * 只清理超过该时长未写入的文件，保存音频时先写文件后写记录，留出足够余量，单位：毫秒
+     */
+    private static final long ORPHAN_GRACE_MS = TimeUnit.DAYS.toMillis(1);
+    private static final int SWEEP_BATCH_SIZE = 500;
+
+    private final AudioStore audioStore;
+    private final AudioStoreProperties audioStoreProperties;
+
     @Override
     public String saveAudio(byte[] audioData) {
         AgentChatAudioEntity entity = new AgentChatAudioEntity();
-        entity.setAudio(audioData);
+        if (audioStoreProperties.isEnabled()) {
+            entity.setStorageKey(audioStore.put(audioData));
+        } else {
+            entity.setAudio(audioData);
+        }
+        entity.setAudioSize((long) audioData.length);
         save(entity);
         return entity.getId();
     }
 
     @Override
     public byte[] getAudio(String audioId) {
+        Resource resource = getAudioResource(audioId);
+        if (resource == null) {
+            return null;
+        }
+        try (InputStream in = resource.getInputStream()) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            log.error("Failed to read audio {}", audioId, e);
+            return null;
+        }
+    }
+
+    @Override
+    public Resource getAudioResource(String audioId) {
         AgentChatAudioEntity entity = getById(audioId);
+        if (entity == null) {
+            return null;
+        }
+        if (entity.getStorageKey() != null) {
+            return audioStore.get(entity.getStorageKey());
+        }
+        byte[] audioData = getBlob(audioId);
+        return audioData != null ? new ByteArrayResource(audioData) : null;
+    }
+
+    @Override
+    public boolean existsAudio(String audioId) {
+        AgentChatAudioEntity entity = getById(audioId);
+        if (entity == null) {
+            return false;
+        }
+        return entity.getStorageKey() == null || audioStore.exists(entity.getStorageKey());
+    }
+
+    @Override
+    public int migrateBlobBatch(int batchSize) {
+        // 先只查ID，再逐条读取BLOB，避免一次把整批音频加载到内存
+        List<Object> ids = baseMapper.selectObjs(new QueryWrapper<AgentChatAudioEntity>()
+                .select("id")
+                .isNull("storage_key")
+                .isNotNull("audio")
+                .last("LIMIT " + batchSize));
+        int migrated = 0;
+        for (Object id : ids) {
+            String audioId = id.toString();
+            byte[] audioData = getBlob(audioId);
+            if (audioData == null) {
+                continue;
+            }
+            String storageKey = audioStore.put(audioData);
+            baseMapper.update(null, new UpdateWrapper<AgentChatAudioEntity>()
+                    .eq("id", audioId)
+                    .isNull("storage_key")
+                    .set("storage_key", storageKey)
+                    .set("audio_size", audioData.length)
+                    .set("audio", null));
+            migrated++;
+        }
+        if (migrated > 0) {
+            log.info("Migrated {} chat audio blobs to audio store", migrated);
+        }
+        return migrated;
+    }
+
+    @Override
+    public long countBlobAudio() {
+        return baseMapper.selectCount(new QueryWrapper<AgentChatAudioEntity>()
+                .isNull("storage_key")
+                .isNotNull("audio"));
+    }
+
+    @Override
+    public int sweepOrphanFiles() {
+        long olderThan = System.currentTimeMillis() - ORPHAN_GRACE_MS;
+        AtomicInteger deleted = new AtomicInteger();
+        audioStore.scan(olderThan, SWEEP_BATCH_SIZE, keys -> {
+            Set<String> referenced = new HashSet<>();
+            for (Object key : baseMapper.selectObjs(new QueryWrapper<AgentChatAudioEntity>()
+                    .select("DISTINCT storage_key")
+                    .in("storage_key", keys))) {
+                referenced.add(key.toString());
+            }
+            for (String key : keys) {
+                if (!referenced.contains(key) && audioStore.delete(key, olderThan)) {
+                    deleted.incrementAndGet();
+                }
+            }
+        });
+        if (deleted.get() > 0) {
+            log.info("Deleted {} orphan chat audio files", deleted.get());
+        }
+        return deleted.get();
+    }
+
+    /**
+     * 每天凌晨5点清理不再被引用的音频文件，删除智能体或用户后其聊天音频在此时删除
+     */
+    @Scheduled(cron = "0 0 5 * * ?")
+    public void scheduledSweepOrphanFiles() {
+        try {
+            sweepOrphanFiles();
+        } catch (Exception e) {
+            log.error("Failed to sweep orphan chat audio files", e);
+        }
+    }
+
+    private byte[] getBlob(String audioId) {
+        AgentChatAudioEntity entity = baseMapper.selectOne(new QueryWrapper<AgentChatAudioEntity>()
+                .select("id", "audio")
+                .eq("id", audioId));
         return entity != null ? entity.getAudio() : null;
     }
 }
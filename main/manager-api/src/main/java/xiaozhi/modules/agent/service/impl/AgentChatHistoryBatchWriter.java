@@ -0,0 +1,277 @@
+package xiaozhi.modules.agent.service.impl;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntSupplier;
+
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import xiaozhi.modules.agent.config.ChatHistoryProperties;
+import xiaozhi.modules.agent.dao.AiAgentChatHistoryDao;
+import xiaozhi.modules.agent.entity.AgentChatHistoryEntity;
+import xiaozhi.modules.agent.service.ChatDailyRollupService;
+
+/**
+ * 聊天记录异步批量写入
+ * <p>
+ * 上报线程只负责入队，由单独的写入线程按条数或时间攒批，以多行INSERT写入数据库；
+ * 队列满时上报线程等待，超时后改为同步写入，形成背压。应用关闭时写完队列中剩余数据。
+ * 每日聊天汇总随写入一并更新，每批只累加一次
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AgentChatHistoryBatchWriter {
+    /**
+     * 关闭时等待写入线程结束的最长时间，单位：毫秒
+     */
+    private static final long SHUTDOWN_TIMEOUT_MS = 30 * 1000L;
+
+    private final ChatHistoryProperties properties;
+    private final AiAgentChatHistoryDao chatHistoryDao;
+    private final ChatDailyRollupService chatDailyRollupService;
+
+    private final AtomicLong flushedRows = new AtomicLong();
+    private final AtomicLong flushedBatches = new AtomicLong();
+    private final AtomicLong syncFallbackRows = new AtomicLong();
+    private final AtomicLong failedRows = new AtomicLong();
+
+    /**
+     * 各用户已入队、尚未写入完成的记录数，初始化聊天次数计数时补上这部分
+     */
+    private final Map<Long, Integer> pendingByUser = new ConcurrentHashMap<>();
+    /**
+     * 写入一批并移出待写入数时持有写锁，统计已写入数和待写入数时持有读锁，避免同一条记录被重复计入
+     */
+    private final ReadWriteLock flushLock = new ReentrantReadWriteLock();
+
+    private BlockingQueue<AgentChatHistoryEntity> queue;
+    private Thread flusher;
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        if (!properties.isBatchEnabled()) {
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+        running = true;
+        flusher = new Thread(this::flushLoop, "ChatHistoryFlusher");
+        flusher.setDaemon(true);
+        flusher.start();
+        log.info("Chat history batch writer started, queueCapacity={}, batchSize={}, flushIntervalMs={}",
+                properties.getQueueCapacity(), properties.getBatchSize(), properties.getFlushIntervalMs());
+    }
+
+    /**
+     * 是否开启了异步批量写入
+     */
+    public boolean isEnabled() {
+        return queue != null;
+    }
+
+    /**
+     * 提交一条聊天记录
+     */
+    public void submit(AgentChatHistoryEntity entity) {
+        if (running) {
+            // 先计入待写入数，保证入队后、写入前的任意时刻都能统计到
+            addPending(entity, 1);
+            try {
+                if (queue.offer(entity, properties.getOfferTimeoutMs(), TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            addPending(entity, -1);
+            syncFallbackRows.incrementAndGet();
+        }
+        // 队列已满或已关闭，由上报线程直接写入
+        chatHistoryDao.insert(entity);
+        recordRollup(List.of(entity));
+    }
+
+    /**
+     * 统计用户已写入的记录数加上已入队、尚未写入的记录数，统计期间不会有批次完成写入
+     *
+     * @param userId       用户id
+     * @param historyCount 查询已写入的记录数
+     */
+    public int countWithPending(Long userId, IntSupplier historyCount) {
+        flushLock.readLock().lock();
+        try {
+            Integer pending = userId == null ? null : pendingByUser.get(userId);
+            return historyCount.getAsInt() + (pending == null ? 0 : pending);
+        } finally {
+            flushLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 当前队列中待写入的记录数
+     */
+    public int getQueueDepth() {
+        return queue == null ? 0 : queue.size();
+    }
+
+    /**
+     * 写入统计信息
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", isEnabled());
+        stats.put("queueDepth", getQueueDepth());
+        stats.put("queueCapacity", properties.getQueueCapacity());
+        stats.put("flushedRows", flushedRows.get());
+        stats.put("flushedBatches", flushedBatches.get());
+        stats.put("syncFallbackRows", syncFallbackRows.get());
+        stats.put("failedRows", failedRows.get());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (!isEnabled()) {
+            return;
+        }
+        running = false;
+        try {
+            flusher.join(SHUTDOWN_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // 写入线程退出后仍可能有刚入队的数据
+        List<AgentChatHistoryEntity> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            flush(remaining);
+        }
+        log.info("Chat history batch writer stopped, flushedRows={}, failedRows={}", flushedRows.get(),
+                failedRows.get());
+    }
+
+    private void flushLoop() {
+        List<AgentChatHistoryEntity> batch = new ArrayList<>(properties.getBatchSize());
+        while (running || !queue.isEmpty()) {
+            try {
+                collect(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * 攒批：凑满batchSize或自第一条起超过flushIntervalMs即返回
+     */
+    private void collect(List<AgentChatHistoryEntity> batch) throws InterruptedException {
+        AgentChatHistoryEntity first = queue.poll(properties.getFlushIntervalMs(), TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+        int batchSize = properties.getBatchSize();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(properties.getFlushIntervalMs());
+        while (batch.size() < batchSize) {
+            queue.drainTo(batch, batchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || remaining <= 0 || !running) {
+                break;
+            }
+            AgentChatHistoryEntity next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void flush(List<AgentChatHistoryEntity> batch) {
+        List<AgentChatHistoryEntity> written;
+        flushLock.writeLock().lock();
+        try {
+            written = insert(batch);
+        } finally {
+            // 与写入在同一临界区内移出待写入数（包括写入失败的），统计时每条记录只计入一次
+            for (AgentChatHistoryEntity entity : batch) {
+                addPending(entity, -1);
+            }
+            flushLock.writeLock().unlock();
+        }
+        recordRollup(written);
+    }
+
+    private void addPending(AgentChatHistoryEntity entity, int delta) {
+        Long userId = entity.getUserId();
+        if (userId == null) {
+            return;
+        }
+        pendingByUser.compute(userId, (k, pending) -> {
+            int count = (pending == null ? 0 : pending) + delta;
+            return count > 0 ? count : null;
+        });
+    }
+
+    /**
+     * 累加每日聊天汇总，失败时只记录日志，汇总可通过重建接口修复
+     */
+    private void recordRollup(List<AgentChatHistoryEntity> written) {
+        if (written.isEmpty()) {
+            return;
+        }
+        try {
+            chatDailyRollupService.record(written);
+        } catch (Exception e) {
+            log.error("Failed to update chat daily rollup for {} chat history rows", written.size(), e);
+        }
+    }
+
+    /**
+     * 写入一批聊天记录
+     *
+     * @return 写入成功的记录
+     */
+    private List<AgentChatHistoryEntity> insert(List<AgentChatHistoryEntity> batch) {
+        try {
+            chatHistoryDao.insertBatch(batch);
+            flushedRows.addAndGet(batch.size());
+            flushedBatches.incrementAndGet();
+            return batch;
+        } catch (Exception e) {
+            log.error("Batch insert of {} chat history rows failed, falling back to single inserts", batch.size(), e);
+        }
+        // 批量写入失败时逐条写入，避免一条异常数据影响整批
+        List<AgentChatHistoryEntity> written = new ArrayList<>(batch.size());
+        for (AgentChatHistoryEntity entity : batch) {
+            try {
+                chatHistoryDao.insert(entity);
+                written.add(entity);
+                flushedRows.incrementAndGet();
+            } catch (Exception e) {
+                failedRows.incrementAndGet();
+                log.error("Failed to insert chat history, macAddress={}, sessionId={}", entity.getMacAddress(),
+                        entity.getSessionId(), e);
+            }
+        }
+        return written;
+    }
+}
@@ -1,10 +1,13 @@
 package xiaozhi.modules.agent.service.impl;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -39,7 +42,9 @@ import xiaozhi.modules.agent.service.AgentPluginMappingService;
 import xiaozhi.modules.agent.service.AgentService;
 import xiaozhi.modules.agent.service.AgentTemplateService;
 import xiaozhi.modules.agent.vo.AgentInfoVO;
+import xiaozhi.modules.config.cache.AgentConfigSnapshotCache;
 import xiaozhi.modules.device.service.DeviceService;
+import xiaozhi.modules.device.vo.AgentDeviceStatsVO;
 import xiaozhi.modules.model.dto.ModelProviderDTO;
 import xiaozhi.modules.model.service.ModelConfigService;
 import xiaozhi.modules.model.service.ModelProviderService;
@@ -59,6 +64,7 @@ public class AgentServiceImpl extends BaseServiceImpl<AgentDao, AgentEntity> imp
     private final AgentChatHistoryService agentChatHistoryService;
     private final AgentTemplateService agentTemplateService;
     private final ModelProviderService modelProviderService;
+    private final AgentConfigSnapshotCache agentConfigSnapshotCache;
 
     @Override
     public PageData<AgentEntity> adminAgentList(Map<String, Object> params) {
@@ -106,11 +112,23 @@ public class AgentServiceImpl extends BaseServiceImpl<AgentDao, AgentEntity> imp
         return super.insert(entity);
     }
 
+    @Override
+    public boolean deleteById(Serializable id) {
+        agentConfigSnapshotCache.evictAgent(id.toString());
+        return super.deleteById(id);
+    }
+
     @Override
     public void deleteAgentByUserId(Long userId) {
+        List<Object> agentIds = agentDao.selectObjs(new QueryWrapper<AgentEntity>()
+                .select("id")
+                .eq("user_id", userId));
         UpdateWrapper<AgentEntity> wrapper = new UpdateWrapper<>();
         wrapper.eq("user_id", userId);
         baseDao.delete(wrapper);
+        for (Object agentId : agentIds) {
+            agentConfigSnapshotCache.evictAgent(agentId.toString());
+        }
     }
 
     @Override
@@ -118,34 +136,54 @@ public class AgentServiceImpl extends BaseServiceImpl<AgentDao, AgentEntity> imp
         QueryWrapper<AgentEntity> wrapper = new QueryWrapper<>();
         wrapper.eq("user_id", userId);
         List<AgentEntity> agents = agentDao.selectList(wrapper);
-        return agents.stream().map(agent -> {
+        if (agents.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        // 模型名称、音色名称和设备统计各批量获取一次，往返次数与智能体数量无关
+        Set<String> modelIds = new HashSet<>();
+        List<String> timbreIds = new ArrayList<>(agents.size());
+        List<String> agentIds = new ArrayList<>(agents.size());
+        for (AgentEntity agent : agents) {
+            modelIds.add(agent.getTtsModelId());
+            modelIds.add(agent.getLlmModelId());
+            modelIds.add(agent.getVllmModelId());
+            timbreIds.add(agent.getTtsVoiceId());
+            agentIds.add(agent.getId());
+        }
+        Map<String, String> modelNames = modelConfigService.getModelNamesByIds(modelIds);
+        Map<String, String> timbreNames = timbreModelService.getTimbreNamesByIds(timbreIds);
+        Map<String, AgentDeviceStatsVO> deviceStats = deviceService.getAgentDeviceStats(agentIds);
+
+        List<AgentDTO> result = new ArrayList<>(agents.size());
+        for (AgentEntity agent : agents) {
             AgentDTO dto = new AgentDTO();
             dto.setId(agent.getId());
             dto.setAgentName(agent.getAgentName());
             dto.setSystemPrompt(agent.getSystemPrompt());
 
             // 获取 TTS 模型名称
-            dto.setTtsModelName(modelConfigService.getModelNameById(agent.getTtsModelId()));
+            dto.setTtsModelName(modelNames.get(agent.getTtsModelId()));
 
             // 获取 LLM 模型名称
-            dto.setLlmModelName(modelConfigService.getModelNameById(agent.getLlmModelId()));
+            dto.setLlmModelName(modelNames.get(agent.getLlmModelId()));
 
             // 获取 VLLM 模型名称
-            dto.setVllmModelName(modelConfigService.getModelNameById(agent.getVllmModelId()));
+            dto.setVllmModelName(modelNames.get(agent.getVllmModelId()));
 
             // 获取记忆模型名称
             dto.setMemModelId(agent.getMemModelId());
 
             // 获取 TTS 音色名称
-            dto.setTtsVoiceName(timbreModelService.getTimbreNameById(agent.getTtsVoiceId()));
-
-            // 获取智能体最近的最后连接时长
-            dto.setLastConnectedAt(deviceService.getLatestLastConnectionTime(agent.getId()));
+            dto.setTtsVoiceName(timbreNames.get(agent.getTtsVoiceId()));
 
-            // 获取设备数量
-            dto.setDeviceCount(getDeviceCountByAgentId(agent.getId()));
-            return dto;
-        }).collect(Collectors.toList());
+            // 获取智能体最近的最后连接时长和设备数量
+            AgentDeviceStatsVO stats = deviceStats.get(agent.getId());
+            dto.setLastConnectedAt(stats == null ? null : stats.getLastConnectedAt());
+            dto.setDeviceCount(stats == null ? 0 : stats.getDeviceCount());
+            result.add(dto);
+        }
+        return result;
     }
 
     @Override
@@ -325,6 +363,7 @@ public class AgentServiceImpl extends BaseServiceImpl<AgentDao, AgentEntity> imp
             agentChatHistoryService.deleteByAgentId(existingEntity.getId(), true, false);
         }
         this.updateById(existingEntity);
+        agentConfigSnapshotCache.evictAgent(agentId);
     }
 
     @Override
@@ -0,0 +1,147 @@
+package xiaozhi.modules.agent.service.impl;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import xiaozhi.common.exception.RenException;
+import xiaozhi.common.redis.RedisKeys;
+import xiaozhi.common.redis.RedisUtils;
+import xiaozhi.modules.agent.dao.ChatDailyRollupDao;
+import xiaozhi.modules.agent.entity.AgentChatHistoryEntity;
+import xiaozhi.modules.agent.entity.ChatDailyRollupEntity;
+import xiaozhi.modules.agent.service.ChatDailyRollupService;
+
+/**
+ * {@link ChatDailyRollupService} impl
+ */
+@Slf4j
+@Service
+@AllArgsConstructor
+public class ChatDailyRollupServiceImpl implements ChatDailyRollupService {
+    /**
+     * 单次重建允许的最大天数
+     */
+    private static final int MAX_REBUILD_DAYS = 366;
+    /**
+     * 汇总表为空时回填的天数，覆盖管理端统计的时间范围，更早的数据可通过重建接口按需回填
+     */
+    private static final int BACKFILL_DAYS = 90;
+    /**
+     * 回填租约过期时长，单位：秒
+     */
+    private static final long BACKFILL_LOCK_EXPIRE = 60 * 60L;
+
+    private final ChatDailyRollupDao chatDailyRollupDao;
+    private final TransactionTemplate transactionTemplate;
+    private final RedisUtils redisUtils;
+
+    /**
+     * 汇总表中没有今天之前的数据时（首次部署）在后台按天回填，不阻塞启动；与增量汇总一样按应用时区划分日期。
+     * 启动后的上报会立即写入今天的汇总，因此只以今天之前是否有数据判断
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        Thread backfill = new Thread(this::backfillIfEmpty, "ChatRollupBackfill");
+        backfill.setDaemon(true);
+        backfill.start();
+    }
+
+    @Override
+    public void record(Collection<AgentChatHistoryEntity> rows) {
+        ZoneId zone = ZoneId.systemDefault();
+        Map<String, ChatDailyRollupEntity> merged = new LinkedHashMap<>();
+        for (AgentChatHistoryEntity row : rows) {
+            if (row.getUserId() == null || row.getCreatedAt() == null) {
+                continue;
+            }
+            LocalDate day = row.getCreatedAt().toInstant().atZone(zone).toLocalDate();
+            String agentId = StringUtils.defaultString(row.getAgentId());
+            ChatDailyRollupEntity rollup = merged.computeIfAbsent(day + ":" + row.getUserId() + ":" + agentId, k -> {
+                ChatDailyRollupEntity entity = new ChatDailyRollupEntity();
+                entity.setDay(day);
+                entity.setUserId(row.getUserId());
+                entity.setAgentId(agentId);
+                entity.setUserMsgs(0);
+                entity.setAgentMsgs(0);
+                return entity;
+            });
+            if (Objects.equals(row.getChatType(), (byte) 1)) {
+                rollup.setUserMsgs(rollup.getUserMsgs() + 1);
+            } else {
+                rollup.setAgentMsgs(rollup.getAgentMsgs() + 1);
+            }
+        }
+        if (merged.isEmpty()) {
+            return;
+        }
+        chatDailyRollupDao.incrementBatch(new ArrayList<>(merged.values()));
+    }
+
+    private void backfillIfEmpty() {
+        try {
+            LocalDate today = LocalDate.now();
+            if (chatDailyRollupDao.existsBefore(today) != null) {
+                return;
+            }
+            // 多节点同时启动时只由一个节点回填；Redis不可用时直接回填，按天重建可以重复执行
+            if (Boolean.FALSE.equals(tryBackfillLock())) {
+                return;
+            }
+            long start = System.currentTimeMillis();
+            int rows = rebuild(today.minusDays(BACKFILL_DAYS), today);
+            log.info("Chat daily rollup backfilled for the last {} days, rows={}, cost={}ms", BACKFILL_DAYS, rows,
+                    System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("Failed to backfill chat daily rollup, use the rebuild endpoint to retry", e);
+        }
+    }
+
+    private Boolean tryBackfillLock() {
+        try {
+            return redisUtils.setIfAbsent(RedisKeys.getChatRollupBackfillLockKey(), 1, BACKFILL_LOCK_EXPIRE);
+        } catch (Exception e) {
+            log.warn("Failed to acquire chat rollup backfill lock, backfilling anyway", e);
+            return null;
+        }
+    }
+
+    @Override
+    public int rebuild(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new RenException("Start date must not be after end date");
+        }
+        if (from.plusDays(MAX_REBUILD_DAYS).isBefore(to)) {
+            throw new RenException("At most " + MAX_REBUILD_DAYS + " days can be rebuilt at once");
+        }
+        ZoneId zone = ZoneId.systemDefault();
+        int rows = 0;
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            LocalDate current = day;
+            // 与增量汇总使用同一时区划分日期
+            Date start = Date.from(current.atStartOfDay(zone).toInstant());
+            Date end = Date.from(current.plusDays(1).atStartOfDay(zone).toInstant());
+            // 删除和重新汇总在同一事务内，读取方不会看到空数据
+            Integer written = transactionTemplate.execute(status -> {
+                chatDailyRollupDao.deleteByDay(current);
+                return chatDailyRollupDao.rebuildDay(current, start, end);
+            });
+            rows += written == null ? 0 : written;
+            log.info("Rebuilt chat daily rollup for {}", current);
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,268 @@
+package xiaozhi.modules.config.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import xiaozhi.common.redis.RedisKeys;
+import xiaozhi.common.redis.RedisRecoveredEvent;
+import xiaozhi.common.redis.RedisUtils;
+import xiaozhi.modules.agent.dao.AgentDao;
+import xiaozhi.modules.agent.entity.AgentEntity;
+
+/**
+ * 智能体配置快照缓存
+ * <p>
+ * 快照是按智能体编译好的下发配置，本地缓存和Redis两级存放。快照登记其引用的模型和音色，
+ * 智能体、模型、音色或相关系统参数变更时只失效受影响的快照，并通过Redis发布订阅通知其他节点清除本地缓存。
+ * 快照只能读取，不能修改
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AgentConfigSnapshotCache implements MessageListener {
+    /**
+     * 快照和依赖集合的过期时长为24小时，单位：秒
+     */
+    private static final long SNAPSHOT_EXPIRE = RedisUtils.DEFAULT_EXPIRE;
+    /**
+     * 通知全部失效的消息
+     */
+    private static final String EVICT_ALL = "*";
+    /**
+     * 失效数量超过该值时改为通知全部失效，避免逐条发布
+     */
+    private static final int PUBLISH_BATCH_LIMIT = 100;
+    private static final int DELETE_BATCH_SIZE = 500;
+    private static final String DEP_MODEL = "model";
+    private static final String DEP_TIMBRE = "timbre";
+    private static final RedisSerializer<Object> MESSAGE_SERIALIZER = RedisSerializer.json();
+
+    private final RedisUtils redisUtils;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final AgentDao agentDao;
+
+    private final Cache<String, Map<String, Object>> localCache = CacheBuilder.newBuilder()
+            .maximumSize(10000)
+            .expireAfterWrite(10, TimeUnit.MINUTES)
+            .build();
+
+    /**
+     * 每次失效时递增，构建期间发生过失效的快照不写入缓存，避免旧数据覆盖
+     */
+    private final AtomicLong evictStamp = new AtomicLong();
+
+    /**
+     * Redis不可用期间无法查到依赖快照的失效，记录下来在恢复后失效所有快照
+     */
+    private final AtomicBoolean evictAllPending = new AtomicBoolean();
+
+    @PostConstruct
+    public void init() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(RedisKeys.getAgentConfigSnapshotChannel()));
+    }
+
+    /**
+     * 获取快照
+     *
+     * @param agentId 智能体ID
+     * @return 快照，不存在时返回null
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> get(String agentId) {
+        Map<String, Object> snapshot = localCache.getIfPresent(agentId);
+        if (snapshot != null) {
+            return snapshot;
+        }
+        Object cached = redisUtils.get(RedisKeys.getAgentConfigSnapshotKey(agentId));
+        if (cached instanceof Map) {
+            snapshot = (Map<String, Object>) cached;
+            localCache.put(agentId, snapshot);
+        }
+        return snapshot;
+    }
+
+    /**
+     * 开始构建快照前获取当前失效版本，写入时传回
+     */
+    public long currentStamp() {
+        return evictStamp.get();
+    }
+
+    /**
+     * 写入快照
+     *
+     * @param agentId  智能体ID
+     * @param snapshot 快照
+     * @param modelIds 快照引用的模型ID
+     * @param timbreId 快照引用的音色ID
+     * @param stamp    构建前通过{@link #currentStamp()}获取的版本
+     */
+    public void put(String agentId, Map<String, Object> snapshot, Collection<String> modelIds, String timbreId,
+            long stamp) {
+        // 先登记依赖再写快照，保证能找到每一个已写入的快照
+        for (String modelId : modelIds) {
+            addDependency(DEP_MODEL, modelId, agentId);
+        }
+        if (timbreId != null) {
+            addDependency(DEP_TIMBRE, timbreId, agentId);
+        }
+        if (evictStamp.get() != stamp) {
+            return;
+        }
+        redisUtils.set(RedisKeys.getAgentConfigSnapshotKey(agentId), snapshot, SNAPSHOT_EXPIRE);
+        localCache.put(agentId, snapshot);
+    }
+
+    /**
+     * 智能体变更，失效其快照
+     */
+    public void evictAgent(String agentId) {
+        runNowAndAfterCommit(() -> evict(List.of(agentId)));
+    }
+
+    /**
+     * 模型配置变更，失效引用该模型的快照
+     */
+    public void evictByModel(String modelId) {
+        runNowAndAfterCommit(() -> evictDependents(DEP_MODEL, modelId));
+    }
+
+    /**
+     * 音色变更，失效引用该音色的快照
+     */
+    public void evictByTimbre(String timbreId) {
+        runNowAndAfterCommit(() -> evictDependents(DEP_TIMBRE, timbreId));
+    }
+
+    /**
+     * 影响全部智能体的参数变更，失效所有快照
+     */
+    public void evictAll() {
+        runNowAndAfterCommit(this::evictAllNow);
+    }
+
+    /**
+     * Redis熔断期间收不到其他节点的失效通知，恢复后清空本地缓存；期间有未能确定范围的失效时失效所有快照
+     */
+    @EventListener(RedisRecoveredEvent.class)
+    public void onRedisRecovered() {
+        evictStamp.incrementAndGet();
+        localCache.invalidateAll();
+        if (evictAllPending.compareAndSet(true, false)) {
+            try {
+                evictAllNow();
+            } catch (Exception e) {
+                evictAllPending.set(true);
+                log.error("Failed to evict agent config snapshots after redis recovery", e);
+            }
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        Object agentId = MESSAGE_SERIALIZER.deserialize(message.getBody());
+        evictStamp.incrementAndGet();
+        if (agentId == null || EVICT_ALL.equals(agentId)) {
+            localCache.invalidateAll();
+        } else {
+            localCache.invalidate(agentId.toString());
+        }
+    }
+
+    private void addDependency(String type, String id, String agentId) {
+        String depKey = RedisKeys.getAgentConfigSnapshotDepKey(type, id);
+        redisUtils.sAdd(depKey, agentId);
+        redisUtils.expire(depKey, SNAPSHOT_EXPIRE);
+    }
+
+    private void evictDependents(String type, String id) {
+        String depKey = RedisKeys.getAgentConfigSnapshotDepKey(type, id);
+        Set<Object> members = redisUtils.sMembers(depKey);
+        if (members == null) {
+            // Redis不可用，无法确定受影响的快照：本地全部失效，Redis中的快照在恢复后全部失效
+            evictStamp.incrementAndGet();
+            localCache.invalidateAll();
+            evictAllPending.set(true);
+            log.warn("Redis unavailable while evicting snapshots depending on {} {}, all snapshots will be evicted "
+                    + "after recovery", type, id);
+            return;
+        }
+        if (members.isEmpty()) {
+            return;
+        }
+        List<String> agentIds = members.stream().map(Object::toString).toList();
+        evict(agentIds);
+        redisUtils.delete(depKey);
+    }
+
+    private void evict(Collection<String> agentIds) {
+        evictStamp.incrementAndGet();
+        List<String> keys = agentIds.stream().map(RedisKeys::getAgentConfigSnapshotKey).toList();
+        redisUtils.delete(keys);
+        localCache.invalidateAll(agentIds);
+        if (agentIds.size() > PUBLISH_BATCH_LIMIT) {
+            redisUtils.publish(RedisKeys.getAgentConfigSnapshotChannel(), EVICT_ALL);
+            return;
+        }
+        for (String agentId : agentIds) {
+            redisUtils.publish(RedisKeys.getAgentConfigSnapshotChannel(), agentId);
+        }
+    }
+
+    private void evictAllNow() {
+        evictStamp.incrementAndGet();
+        List<Object> agentIds = agentDao.selectObjs(new QueryWrapper<AgentEntity>().select("id"));
+        List<String> keys = new ArrayList<>(DELETE_BATCH_SIZE);
+        for (Object agentId : agentIds) {
+            keys.add(RedisKeys.getAgentConfigSnapshotKey(agentId.toString()));
+            if (keys.size() >= DELETE_BATCH_SIZE) {
+                redisUtils.delete(keys);
+                keys = new ArrayList<>(DELETE_BATCH_SIZE);
+            }
+        }
+        if (!keys.isEmpty()) {
+            redisUtils.delete(keys);
+        }
+        localCache.invalidateAll();
+        redisUtils.publish(RedisKeys.getAgentConfigSnapshotChannel(), EVICT_ALL);
+        log.info("Evicted all agent config snapshots ({} agents)", agentIds.size());
+    }
+
+    /**
+     * 立即失效一次；处于事务中时提交后再失效一次，清除事务提交前按旧数据重建的快照
+     */
+    private void runNowAndAfterCommit(Runnable task) {
+        task.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    task.run();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package xiaozhi.modules.config.controller;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.AllArgsConstructor;
+import xiaozhi.common.redis.RedisCircuitBreaker;
+import xiaozhi.common.utils.Result;
+import xiaozhi.modules.config.init.CacheWarmup;
+
+/**
+ * 健康检查，供负载均衡判断节点是否可以接收流量
+ */
+@RestController
+@Tag(name = "Health Check")
+@AllArgsConstructor
+public class HealthController {
+    private final CacheWarmup cacheWarmup;
+    private final RedisCircuitBreaker redisCircuitBreaker;
+
+    @GetMapping("/health")
+    @Operation(summary = "readiness, returns 503 until the startup cache warmup has finished")
+    public ResponseEntity<Result<Map<String, Object>>> health() {
+        Map<String, Object> body = new LinkedHashMap<>(cacheWarmup.getStatus());
+        // Redis熔断时仍可由数据库提供服务，只展示状态，不影响就绪判断
+        body.put("redis", redisCircuitBreaker.getState().name());
+        Result<Map<String, Object>> result = new Result<Map<String, Object>>().ok(body);
+        HttpStatus status = cacheWarmup.isReady() ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE;
+        return ResponseEntity.status(status).body(result);
+    }
+}
@@ -0,0 +1,180 @@
+package xiaozhi.modules.config.init;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import xiaozhi.modules.config.service.ConfigService;
+import xiaozhi.modules.device.dao.DeviceDao;
+import xiaozhi.modules.device.entity.DeviceEntity;
+import xiaozhi.modules.model.dao.ModelConfigDao;
+import xiaozhi.modules.model.entity.ModelConfigEntity;
+import xiaozhi.modules.model.service.ModelConfigService;
+import xiaozhi.modules.sys.dao.SysDictTypeDao;
+import xiaozhi.modules.sys.dao.SysParamsDao;
+import xiaozhi.modules.sys.entity.SysDictTypeEntity;
+import xiaozhi.modules.sys.entity.SysParamsEntity;
+import xiaozhi.modules.sys.service.SysDictDataService;
+import xiaozhi.modules.sys.service.SysParamsService;
+import xiaozhi.modules.timbre.dao.TimbreDao;
+import xiaozhi.modules.timbre.entity.TimbreEntity;
+import xiaozhi.modules.timbre.service.TimbreService;
+
+/**
+ * 启动预热
+ * <p>
+ * 应用启动后在有界线程池中并行加载启用的模型配置、音色、系统参数、字典数据以及最近活跃智能体的下发配置，
+ * 预热完成前健康检查返回未就绪，负载均衡据此在预热完成后再转发设备请求。单项加载失败不影响就绪
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CacheWarmup {
+    /**
+     * 预热任务队列容量，队列满时由提交线程执行
+     */
+    private static final int QUEUE_CAPACITY = 1000;
+
+    public enum State {
+        WARMING, READY
+    }
+
+    private final WarmupProperties properties;
+    private final ModelConfigDao modelConfigDao;
+    private final TimbreDao timbreDao;
+    private final SysParamsDao sysParamsDao;
+    private final SysDictTypeDao sysDictTypeDao;
+    private final DeviceDao deviceDao;
+    private final ModelConfigService modelConfigService;
+    private final TimbreService timbreService;
+    private final SysParamsService sysParamsService;
+    private final SysDictDataService sysDictDataService;
+    private final ConfigService configService;
+
+    private final AtomicInteger loaded = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+
+    private volatile State state = State.WARMING;
+    private volatile long startedAt;
+    private volatile long finishedAt;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!properties.isEnabled()) {
+            state = State.READY;
+            return;
+        }
+        Thread warmup = new Thread(this::warmup, "CacheWarmup");
+        warmup.setDaemon(true);
+        warmup.start();
+    }
+
+    public boolean isReady() {
+        return state == State.READY;
+    }
+
+    /**
+     * 预热状态
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("state", state);
+        status.put("loaded", loaded.get());
+        status.put("failed", failed.get());
+        if (startedAt > 0) {
+            long end = finishedAt > 0 ? finishedAt : System.currentTimeMillis();
+            status.put("elapsedMs", end - startedAt);
+        }
+        return status;
+    }
+
+    private void warmup() {
+        startedAt = System.currentTimeMillis();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(properties.getThreads(), properties.getThreads(),
+                0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        try {
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            // 启用的模型配置
+            for (Object id : listIds(modelConfigDao.selectObjs(new QueryWrapper<ModelConfigEntity>()
+                    .select("id").eq("is_enabled", 1)))) {
+                futures.add(submit(executor, "model " + id, () -> {
+                    modelConfigService.getModelById(id.toString(), true);
+                    modelConfigService.getModelNameById(id.toString());
+                }));
+            }
+            // 音色
+            for (Object id : listIds(timbreDao.selectObjs(new QueryWrapper<TimbreEntity>().select("id")))) {
+                futures.add(submit(executor, "timbre " + id, () -> timbreService.get(id.toString())));
+            }
+            // 系统参数
+            for (Object code : listIds(sysParamsDao.selectObjs(new QueryWrapper<SysParamsEntity>()
+                    .select("param_code")))) {
+                futures.add(submit(executor, "param " + code, () -> sysParamsService.getValue(code.toString(), true)));
+            }
+            // 字典数据
+            for (Object type : listIds(sysDictTypeDao.selectObjs(new QueryWrapper<SysDictTypeEntity>()
+                    .select("dict_type")))) {
+                futures.add(submit(executor, "dict " + type,
+                        () -> sysDictDataService.getDictDataByType(type.toString())));
+            }
+            // 最近活跃智能体的下发配置，依赖上面的模型和音色缓存，放在最后提交
+            for (Object agentId : listIds(deviceDao.selectObjs(new QueryWrapper<DeviceEntity>()
+                    .select("agent_id")
+                    .isNotNull("agent_id")
+                    .groupBy("agent_id")
+                    .orderByDesc("MAX(last_connected_at)")
+                    .last("LIMIT " + properties.getAgentLimit())))) {
+                futures.add(submit(executor, "agent " + agentId,
+                        () -> configService.warmAgentConfig(agentId.toString())));
+            }
+
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                    .get(properties.getTimeoutSeconds(), TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            log.warn("Cache warmup timed out after {}s, serving with a partially warm cache",
+                    properties.getTimeoutSeconds());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("Cache warmup failed, serving with a cold cache", e);
+        } finally {
+            executor.shutdownNow();
+            finishedAt = System.currentTimeMillis();
+            state = State.READY;
+            log.info("Cache warmup finished, loaded={}, failed={}, cost={}ms", loaded.get(), failed.get(),
+                    finishedAt - startedAt);
+        }
+    }
+
+    private CompletableFuture<Void> submit(ThreadPoolExecutor executor, String name, Runnable task) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                task.run();
+                loaded.incrementAndGet();
+            } catch (Exception e) {
+                failed.incrementAndGet();
+                log.warn("Cache warmup of {} failed: {}", name, e.getMessage());
+            }
+        }, executor);
+    }
+
+    private static List<Object> listIds(List<Object> ids) {
+        return ids == null ? List.of() : ids;
+    }
+}
@@ -1,17 +1,21 @@
 package xiaozhi.modules.config.init;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.DependsOn;
 
 import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
 import xiaozhi.common.constant.Constant;
 import xiaozhi.common.redis.RedisKeys;
 import xiaozhi.common.redis.RedisUtils;
 import xiaozhi.modules.config.service.ConfigService;
 import xiaozhi.modules.sys.service.SysParamsService;
 
+@Slf4j
 @Configuration
+@EnableConfigurationProperties(WarmupProperties.class)
 @DependsOn("liquibase")
 public class SystemInitConfig {
 
@@ -29,10 +33,10 @@ public class SystemInitConfig {
         // 检查版本号
         String redisVersion = (String) redisUtils.get(RedisKeys.getVersionKey());
         if (!Constant.VERSION.equals(redisVersion)) {
-            // 如果版本不一致，清空Redis
-            redisUtils.emptyAll();
+            // 版本不一致时缓存已切换到新代际前缀，旧缓存由RedisCacheSweeper在后台清理
+            log.info("Cache generation changed from {} to {}", redisVersion, RedisKeys.CACHE_GENERATION);
             // 存储新版本号
-            redisUtils.set(RedisKeys.getVersionKey(), Constant.VERSION);
+            redisUtils.set(RedisKeys.getVersionKey(), Constant.VERSION, RedisUtils.NOT_EXPIRE);
         }
 
         sysParamsService.initServerSecret();
@@ -0,0 +1,29 @@
+package xiaozhi.modules.config.init;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * 启动预热配置项
+ */
+@Data
+@ConfigurationProperties(prefix = "renren.warmup")
+public class WarmupProperties {
+    /**
+     * 是否在启动后预热缓存，关闭时启动即就绪
+     */
+    private boolean enabled = true;
+    /**
+     * 预热线程数
+     */
+    private int threads = 4;
+    /**
+     * 预热最近活跃的智能体数量
+     */
+    private int agentLimit = 200;
+    /**
+     * 预热最长时间，超时后不再等待剩余任务，直接就绪，单位：秒
+     */
+    private long timeoutSeconds = 120;
+}
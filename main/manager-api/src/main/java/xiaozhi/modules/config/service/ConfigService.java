@@ -20,6 +20,13 @@ public interface ConfigService {
      */
     Map<String, Object> getAgentModels(String macAddress, Map<String, String> selectedModule);
 
+    /**
+     * 预热智能体的下发配置快照，已缓存时不重复编译
+     *
+     * @param agentId 智能体ID
+     */
+    void warmAgentConfig(String agentId);
+
     /**
      * 检查设备所有者账户是否因聊天限制而被禁用
      * 
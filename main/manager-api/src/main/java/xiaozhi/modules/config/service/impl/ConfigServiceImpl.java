@@ -18,6 +18,7 @@ import xiaozhi.modules.agent.entity.AgentTemplateEntity;
 import xiaozhi.modules.agent.service.AgentPluginMappingService;
 import xiaozhi.modules.agent.service.AgentService;
 import xiaozhi.modules.agent.service.AgentTemplateService;
+import xiaozhi.modules.config.cache.AgentConfigSnapshotCache;
 import xiaozhi.modules.config.service.ConfigService;
 import xiaozhi.modules.device.entity.DeviceEntity;
 import xiaozhi.modules.device.service.DeviceService;
@@ -34,6 +35,12 @@ import xiaozhi.modules.timbre.vo.TimbreDetailsVO;
 @Service
 @AllArgsConstructor
 public class ConfigServiceImpl implements ConfigService {
+    private static final String[] MODEL_TYPES = { "VAD", "ASR", "TTS", "Memory", "Intent", "LLM", "VLLM" };
+    /**
+     * 客户端已实例化时可不再下发的模型类型
+     */
+    private static final String[] CLIENT_REUSABLE_MODEL_TYPES = { "VAD", "ASR" };
+
     private final SysParamsService sysParamsService;
     private final DeviceService deviceService;
     private final ModelConfigService modelConfigService;
@@ -44,6 +51,7 @@ public class ConfigServiceImpl implements ConfigService {
     private final AgentPluginMappingService agentPluginMappingService;
     private final SysUserService sysUserService;
     private final UserPremiumSubscriptionService premiumSubscriptionService;
+    private final AgentConfigSnapshotCache agentConfigSnapshotCache;
 
     @Override
     public Object getConfig(Boolean isCache) {
@@ -100,8 +108,28 @@ public class ConfigServiceImpl implements ConfigService {
             throw new RenException(ErrorCode.OTA_DEVICE_NOT_FOUND, "not found device");
         }
 
+        Map<String, Object> snapshot = agentConfigSnapshotCache.get(device.getAgentId());
+        if (snapshot == null) {
+            snapshot = buildAgentSnapshot(device.getAgentId());
+        }
+        return applySelectedModule(snapshot, selectedModule);
+    }
+
+    @Override
+    public void warmAgentConfig(String agentId) {
+        if (agentConfigSnapshotCache.get(agentId) == null) {
+            buildAgentSnapshot(agentId);
+        }
+    }
+
+    /**
+     * 编译智能体的完整下发配置并写入快照缓存
+     */
+    private Map<String, Object> buildAgentSnapshot(String agentId) {
+        long stamp = agentConfigSnapshotCache.currentStamp();
+
         // 获取智能体信息
-        AgentEntity agent = agentService.getAgentById(device.getAgentId());
+        AgentEntity agent = agentService.getAgentById(agentId);
         if (agent == null) {
             throw new RenException("Agent not founded");
         }
@@ -114,7 +142,7 @@ public class ConfigServiceImpl implements ConfigService {
         // 构建返回数据
         Map<String, Object> result = new HashMap<>();
         // 获取单台设备每天最多输出字数
-        String deviceMaxOutputSize = sysParamsService.getValue("device_max_output_size", true);
+        String deviceMaxOutputSize = sysParamsService.getValue(Constant.DEVICE_MAX_OUTPUT_SIZE, true);
         result.put("device_max_output_size", deviceMaxOutputSize);
 
         // 获取聊天记录配置
@@ -127,19 +155,9 @@ public class ConfigServiceImpl implements ConfigService {
             chatHistoryConf = Constant.ChatHistoryConfEnum.RECORD_TEXT_AUDIO.getCode();
         }
         result.put("chat_history_conf", chatHistoryConf);
-        // 如果客户端已实例化模型，则不返回
-        String alreadySelectedVadModelId = (String) selectedModule.get("VAD");
-        if (alreadySelectedVadModelId != null && alreadySelectedVadModelId.equals(agent.getVadModelId())) {
-            agent.setVadModelId(null);
-        }
-        String alreadySelectedAsrModelId = (String) selectedModule.get("ASR");
-        if (alreadySelectedAsrModelId != null && alreadySelectedAsrModelId.equals(agent.getAsrModelId())) {
-            agent.setAsrModelId(null);
-        }
 
         // 添加函数调用参数信息
         if (!Objects.equals(agent.getIntentModelId(), "Intent_nointent")) {
-            String agentId = agent.getId();
             List<AgentPluginMapping> pluginMappings = agentPluginMappingService.agentPluginParamsByAgentId(agentId);
             if (pluginMappings != null && !pluginMappings.isEmpty()) {
                 Map<String, Object> pluginParams = new HashMap<>();
@@ -166,9 +184,46 @@ public class ConfigServiceImpl implements ConfigService {
                 result,
                 true);
 
+        agentConfigSnapshotCache.put(agentId, result, collectModelIds(result), agent.getTtsVoiceId(), stamp);
         return result;
     }
 
+    /**
+     * 在快照的副本上去掉客户端已实例化的VAD、ASR模型，快照本身不修改
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> applySelectedModule(Map<String, Object> snapshot, Map<String, String> selectedModule) {
+        Map<String, Object> result = new HashMap<>(snapshot);
+        Map<String, String> snapshotSelected = (Map<String, String>) snapshot.get("selected_module");
+        Map<String, String> resultSelected = new HashMap<>(snapshotSelected);
+        if (selectedModule != null) {
+            for (String modelType : CLIENT_REUSABLE_MODEL_TYPES) {
+                String alreadySelectedModelId = selectedModule.get(modelType);
+                if (alreadySelectedModelId != null && alreadySelectedModelId.equals(snapshotSelected.get(modelType))) {
+                    result.remove(modelType);
+                    resultSelected.remove(modelType);
+                }
+            }
+        }
+        result.put("selected_module", resultSelected);
+        return result;
+    }
+
+    /**
+     * 收集配置中引用的全部模型ID，包括意图识别和记忆附加的LLM
+     */
+    @SuppressWarnings("unchecked")
+    private Set<String> collectModelIds(Map<String, Object> result) {
+        Set<String> modelIds = new HashSet<>(((Map<String, String>) result.get("selected_module")).values());
+        for (String modelType : MODEL_TYPES) {
+            Object typeConfig = result.get(modelType);
+            if (typeConfig instanceof Map) {
+                modelIds.addAll(((Map<String, Object>) typeConfig).keySet());
+            }
+        }
+        return modelIds;
+    }
+
     /**
      * 构建配置信息
      * 
@@ -269,7 +324,7 @@ public class ConfigServiceImpl implements ConfigService {
             boolean isCache) {
         Map<String, String> selectedModule = new HashMap<>();
 
-        String[] modelTypes = { "VAD", "ASR", "TTS", "Memory", "Intent", "LLM", "VLLM" };
+        String[] modelTypes = MODEL_TYPES;
         String[] modelIds = { vadModelId, asrModelId, ttsModelId, memModelId, intentModelId, llmModelId, vllmModelId };
         String intentLLMModelId = null;
         String memLocalShortLLMModelId = null;
@@ -281,14 +336,16 @@ public class ConfigServiceImpl implements ConfigService {
             ModelConfigEntity model = modelConfigService.getModelById(modelIds[i], isCache);
             Map<String, Object> typeConfig = new HashMap<>();
             if (model.getConfigJson() != null) {
-                typeConfig.put(model.getId(), model.getConfigJson());
+                // 模型配置来自共享缓存，复制后再修改
+                Map<String, Object> configJson = new LinkedHashMap<>(model.getConfigJson());
+                typeConfig.put(model.getId(), configJson);
                 // 如果是TTS类型，添加private_voice属性
                 if ("TTS".equals(modelTypes[i]) && voice != null) {
-                    ((Map<String, Object>) model.getConfigJson()).put("private_voice", voice);
+                    configJson.put("private_voice", voice);
                 }
                 // 如果是Intent类型，且type=intent_llm，则给他添加附加模型
                 if ("Intent".equals(modelTypes[i])) {
-                    Map<String, Object> map = (Map<String, Object>) model.getConfigJson();
+                    Map<String, Object> map = configJson;
                     if ("intent_llm".equals(map.get("type"))) {
                         intentLLMModelId = (String) map.get("llm");
                         if (StringUtils.isNotBlank(intentLLMModelId) && intentLLMModelId.equals(llmModelId)) {
@@ -305,7 +362,7 @@ public class ConfigServiceImpl implements ConfigService {
                     System.out.println("map: " + map);
                 }
                 if ("Memory".equals(modelTypes[i])) {
-                    Map<String, Object> map = (Map<String, Object>) model.getConfigJson();
+                    Map<String, Object> map = configJson;
                     if ("mem_local_short".equals(map.get("type"))) {
                         memLocalShortLLMModelId = (String) map.get("llm");
                         if (StringUtils.isNotBlank(memLocalShortLLMModelId)
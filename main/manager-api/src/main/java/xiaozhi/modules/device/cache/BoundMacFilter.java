@@ -0,0 +1,255 @@
+package xiaozhi.modules.device.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import xiaozhi.common.redis.RedisKeys;
+import xiaozhi.common.redis.RedisRecoveredEvent;
+import xiaozhi.common.redis.RedisUtils;
+import xiaozhi.modules.device.dao.DeviceDao;
+import xiaozhi.modules.device.entity.DeviceEntity;
+
+/**
+ * 已绑定设备MAC地址过滤器
+ * <p>
+ * 未激活的设备会反复请求OTA和配置接口，按MAC查询设备基本都查不到。这里用布隆过滤器记录已绑定的MAC，
+ * 过滤器判定未绑定的MAC无需查询数据库；过滤器误判及刚解绑的MAC由短时的本地未绑定缓存兜底。
+ * 设备激活时在事务内写入Redis中的最近绑定标记，本地判定为未绑定时再确认该标记，发布订阅通知丢失或与激活并发时也不会误判；
+ * 标记保留到各节点定时重建之后。布隆过滤器无法删除，解绑的MAC在定时重建后移除
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BoundMacFilter implements MessageListener {
+    /**
+     * 误判率
+     */
+    private static final double FPP = 0.01;
+    /**
+     * 过滤器最小容量
+     */
+    private static final int MIN_CAPACITY = 10000;
+    /**
+     * 未绑定缓存时长，单位：秒
+     */
+    private static final long UNBOUND_EXPIRE = 30;
+    /**
+     * 最近绑定标记的保留时长，超过定时重建间隔，单位：秒
+     */
+    private static final long RECENTLY_BOUND_EXPIRE = 60 * 60;
+    private static final RedisSerializer<Object> MESSAGE_SERIALIZER = RedisSerializer.json();
+
+    private final DeviceDao deviceDao;
+    private final RedisUtils redisUtils;
+    private final RedisMessageListenerContainer listenerContainer;
+
+    private final Cache<String, Boolean> unboundCache = CacheBuilder.newBuilder()
+            .maximumSize(100000)
+            .expireAfterWrite(UNBOUND_EXPIRE, TimeUnit.SECONDS)
+            .build();
+
+    private final AtomicLong filteredCount = new AtomicLong();
+    private final AtomicLong unboundHitCount = new AtomicLong();
+    private final AtomicLong recentlyBoundCount = new AtomicLong();
+
+    /**
+     * 为null时表示尚未构建，此时所有MAC都按可能已绑定处理
+     */
+    private volatile BloomFilter<CharSequence> filter;
+    /**
+     * 重建期间新绑定的MAC，重建完成后补入新过滤器
+     */
+    private volatile Set<String> addedDuringRebuild;
+
+    @PostConstruct
+    public void init() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(RedisKeys.getBoundMacChannel()));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    /**
+     * Redis熔断期间收不到其他节点的绑定通知，恢复后清空未绑定缓存并重建过滤器
+     */
+    @EventListener(RedisRecoveredEvent.class)
+    public void onRedisRecovered() {
+        unboundCache.invalidateAll();
+        rebuild();
+    }
+
+    /**
+     * 定时重建，移除已解绑的MAC并按设备数调整容量
+     */
+    @Scheduled(fixedDelay = 30 * 60 * 1000L, initialDelay = 30 * 60 * 1000L)
+    public void scheduledRebuild() {
+        rebuild();
+    }
+
+    /**
+     * 判断MAC是否确定未绑定，为true时无需查询数据库
+     */
+    public boolean isKnownUnbound(String macAddress) {
+        String mac = normalize(macAddress);
+        BloomFilter<CharSequence> current = filter;
+        boolean filtered = current != null && !current.mightContain(mac);
+        if (!filtered && unboundCache.getIfPresent(mac) == null) {
+            return false;
+        }
+        // 本节点可能错过了绑定通知，或未绑定缓存写入时激活尚未提交，以共享的最近绑定标记为准
+        Boolean recentlyBound = isRecentlyBound(mac);
+        if (recentlyBound == null) {
+            return false;
+        }
+        if (recentlyBound) {
+            recentlyBoundCount.incrementAndGet();
+            addLocal(mac);
+            return false;
+        }
+        if (filtered) {
+            filteredCount.incrementAndGet();
+        } else {
+            unboundHitCount.incrementAndGet();
+        }
+        return true;
+    }
+
+    /**
+     * 记录查询数据库后确认未绑定的MAC
+     */
+    public void markUnbound(String macAddress) {
+        unboundCache.put(normalize(macAddress), Boolean.TRUE);
+    }
+
+    /**
+     * 设备绑定后调用，处于事务中时提交后再通知其他节点
+     */
+    public void markBound(String macAddress) {
+        if (macAddress == null) {
+            return;
+        }
+        String mac = normalize(macAddress);
+        addLocal(mac);
+        // 在事务内写入，提交前其他节点查询数据库得到的未绑定结果也会被该标记纠正
+        redisUtils.set(RedisKeys.getRecentlyBoundMacKey(mac), 1, RECENTLY_BOUND_EXPIRE);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    addLocal(mac);
+                    redisUtils.publish(RedisKeys.getBoundMacChannel(), mac);
+                }
+            });
+        } else {
+            redisUtils.publish(RedisKeys.getBoundMacChannel(), mac);
+        }
+    }
+
+    /**
+     * 从数据库重建过滤器
+     */
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        Set<String> added = ConcurrentHashMap.newKeySet();
+        addedDuringRebuild = added;
+        try {
+            Long count = deviceDao.selectCount(null);
+            int capacity = (int) Math.max(MIN_CAPACITY, Math.min(Integer.MAX_VALUE, (count == null ? 0 : count) * 2));
+            BloomFilter<CharSequence> rebuilt = BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8),
+                    capacity, FPP);
+            deviceDao.selectObjs(new QueryWrapper<DeviceEntity>().select("mac_address"), context -> {
+                Object mac = context.getResultObject();
+                if (mac != null) {
+                    rebuilt.put(normalize(mac.toString()));
+                }
+            });
+            filter = rebuilt;
+            added.forEach(rebuilt::put);
+            log.info("Bound MAC filter rebuilt, devices={}, capacity={}, cost={}ms", count, capacity,
+                    System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("Failed to rebuild bound MAC filter", e);
+        } finally {
+            addedDuringRebuild = null;
+        }
+    }
+
+    /**
+     * 过滤统计信息
+     */
+    public Map<String, Object> getStats() {
+        BloomFilter<CharSequence> current = filter;
+        return Map.of(
+                "ready", current != null,
+                "approximateBound", current == null ? 0 : current.approximateElementCount(),
+                "expectedFpp", current == null ? 0 : current.expectedFpp(),
+                "filtered", filteredCount.get(),
+                "unboundCacheHits", unboundHitCount.get(),
+                "recentlyBound", recentlyBoundCount.get(),
+                "unboundCacheSize", unboundCache.size());
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        Object mac = MESSAGE_SERIALIZER.deserialize(message.getBody());
+        if (mac != null) {
+            addLocal(mac.toString());
+        }
+    }
+
+    /**
+     * 是否有最近绑定标记，Redis不可用时无法确认，返回null，由调用方查询数据库
+     */
+    private Boolean isRecentlyBound(String mac) {
+        try {
+            return redisUtils.get(RedisKeys.getRecentlyBoundMacKey(mac)) != null;
+        } catch (Exception e) {
+            log.debug("Failed to check recently bound mark for {}", mac, e);
+            return null;
+        }
+    }
+
+    private void addLocal(String mac) {
+        Set<String> added = addedDuringRebuild;
+        if (added != null) {
+            added.add(mac);
+        }
+        BloomFilter<CharSequence> current = filter;
+        if (current != null) {
+            current.put(mac);
+        }
+        unboundCache.invalidate(mac);
+    }
+
+    private static String normalize(String macAddress) {
+        return macAddress.trim().toLowerCase(Locale.ROOT);
+    }
+}
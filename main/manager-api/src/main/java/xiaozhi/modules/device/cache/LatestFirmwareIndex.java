@@ -0,0 +1,254 @@
+package xiaozhi.modules.device.cache;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import xiaozhi.common.redis.RedisKeys;
+import xiaozhi.common.redis.RedisRecoveredEvent;
+import xiaozhi.common.redis.RedisUtils;
+import xiaozhi.common.utils.ConvertUtils;
+import xiaozhi.modules.device.dao.OtaDao;
+import xiaozhi.modules.device.entity.OtaEntity;
+
+/**
+ * 各固件类型最新版本的内存索引
+ * <p>
+ * 设备每次启动都会检查OTA，索引在本地保存每种类型最新的固件及解析好的版本号，检查时无需查询数据库。
+ * 固件新增、修改、删除后重新加载，并通过Redis发布订阅通知其他节点；另按固定间隔重新加载兜底。
+ * 索引过期或收到通知后由一个请求线程重新加载，其他线程继续使用旧索引，不会同时查询数据库
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LatestFirmwareIndex implements MessageListener {
+    /**
+     * 索引最长使用时间，超过后重新加载，单位：毫秒
+     */
+    private static final long MAX_AGE_MS = TimeUnit.MINUTES.toMillis(10);
+
+    private final OtaDao otaDao;
+    private final RedisUtils redisUtils;
+    private final RedisMessageListenerContainer listenerContainer;
+
+    private volatile Snapshot snapshot;
+    /**
+     * 收到其他节点的变更通知，下次使用时重新加载
+     */
+    private volatile boolean invalidated;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    @PostConstruct
+    public void init() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(RedisKeys.getOtaLatestRefreshChannel()));
+    }
+
+    /**
+     * 获取某类型最新的固件
+     *
+     * @param type 固件类型
+     * @return 最新固件，没有时返回null
+     */
+    public LatestFirmware get(String type) {
+        Snapshot current = snapshot;
+        if (current == null) {
+            current = loadInitial();
+        } else if (isStale(current) && refreshing.compareAndSet(false, true)) {
+            try {
+                current = reload();
+            } catch (Exception e) {
+                log.warn("Failed to reload latest firmware index, keep using the previous one", e);
+            } finally {
+                refreshing.set(false);
+            }
+        }
+        return current.latest.get(type);
+    }
+
+    /**
+     * 固件变更后调用，重新加载本节点索引并通知其他节点，处于事务中时提交后再执行
+     */
+    public void refresh() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    refreshAndPublish();
+                }
+            });
+        } else {
+            refreshAndPublish();
+        }
+    }
+
+    /**
+     * Redis熔断期间收不到其他节点的刷新通知，恢复后重新加载
+     */
+    @EventListener(RedisRecoveredEvent.class)
+    public void onRedisRecovered() {
+        try {
+            reload();
+        } catch (Exception e) {
+            invalidated = true;
+            log.warn("Failed to reload latest firmware index after redis recovery, will retry on next use", e);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        // 下次使用时重新加载，避免所有节点同时查询；加载完成前继续使用旧索引
+        invalidated = true;
+    }
+
+    private void refreshAndPublish() {
+        reload();
+        redisUtils.publish(RedisKeys.getOtaLatestRefreshChannel(), "1");
+    }
+
+    /**
+     * 首次加载，等待中的线程在锁内再次检查，只查询一次
+     */
+    private synchronized Snapshot loadInitial() {
+        Snapshot current = snapshot;
+        return current != null ? current : reload();
+    }
+
+    private boolean isStale(Snapshot current) {
+        return invalidated || System.currentTimeMillis() - current.loadedAt > MAX_AGE_MS;
+    }
+
+    private synchronized Snapshot reload() {
+        // 加载期间收到的通知会重新置位，下次使用时再加载
+        invalidated = false;
+        List<OtaEntity> otaList = otaDao.selectList(null);
+        Map<String, LatestFirmware> latest = new HashMap<>();
+        for (OtaEntity ota : otaList) {
+            if (ota.getType() == null) {
+                continue;
+            }
+            // 与按update_date倒序取第一条一致
+            LatestFirmware existing = latest.get(ota.getType());
+            if (existing == null || isUpdatedAfter(ota, existing.ota)) {
+                latest.put(ota.getType(), new LatestFirmware(ota));
+            }
+        }
+        Snapshot loaded = new Snapshot(Collections.unmodifiableMap(latest), System.currentTimeMillis());
+        snapshot = loaded;
+        log.debug("Latest firmware index loaded, types={}", latest.size());
+        return loaded;
+    }
+
+    private static boolean isUpdatedAfter(OtaEntity a, OtaEntity b) {
+        if (a.getUpdateDate() == null) {
+            return false;
+        }
+        return b.getUpdateDate() == null || a.getUpdateDate().after(b.getUpdateDate());
+    }
+
+    private static class Snapshot {
+        private final Map<String, LatestFirmware> latest;
+        private final long loadedAt;
+
+        Snapshot(Map<String, LatestFirmware> latest, long loadedAt) {
+            this.latest = latest;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    /**
+     * 最新固件及解析好的版本号，只读
+     */
+    public static class LatestFirmware {
+        private final OtaEntity ota;
+        private final int[] version;
+
+        LatestFirmware(OtaEntity ota) {
+            this.ota = ota;
+            this.version = parseVersion(ota.getVersion());
+        }
+
+        /**
+         * 固件信息的副本，调用方修改不影响索引
+         */
+        public OtaEntity getOta() {
+            return ConvertUtils.sourceToTarget(ota, OtaEntity.class);
+        }
+
+        public String getId() {
+            return ota.getId();
+        }
+
+        public String getVersion() {
+            return ota.getVersion();
+        }
+
+        /**
+         * 是否比设备当前版本新
+         *
+         * @param currentVersion 设备当前版本
+         */
+        public boolean isNewerThan(String currentVersion) {
+            if (version == null || currentVersion == null) {
+                return false;
+            }
+            return compareVersions(version, parseVersion(currentVersion)) > 0;
+        }
+    }
+
+    /**
+     * 解析点分版本号，如1.6.2解析为[1, 6, 2]
+     *
+     * @return 版本号各段，无法解析时返回null
+     */
+    static int[] parseVersion(String version) {
+        if (version == null) {
+            return null;
+        }
+        String[] parts = version.split("\\.");
+        int[] result = new int[parts.length];
+        try {
+            for (int i = 0; i < parts.length; i++) {
+                result[i] = Integer.parseInt(parts[i].trim());
+            }
+        } catch (NumberFormatException e) {
+            log.warn("Invalid firmware version: {}", version);
+            return null;
+        }
+        return result;
+    }
+
+    /**
+     * 比较两个版本号，缺少的段按0处理
+     *
+     * @return 如果v1 > v2返回1，v1 < v2返回-1，相等返回0
+     */
+    static int compareVersions(int[] v1, int[] v2) {
+        if (v1 == null || v2 == null) {
+            return 0;
+        }
+        int length = Math.max(v1.length, v2.length);
+        for (int i = 0; i < length; i++) {
+            int p1 = i < v1.length ? v1[i] : 0;
+            int p2 = i < v2.length ? v2[i] : 0;
+            if (p1 != p2) {
+                return p1 > p2 ? 1 : -1;
+            }
+        }
+        return 0;
+    }
+}
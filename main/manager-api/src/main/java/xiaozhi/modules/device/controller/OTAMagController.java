@@ -7,14 +7,19 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.regex.Pattern;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.shiro.authz.annotation.RequiresPermissions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -24,6 +29,7 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -51,6 +57,19 @@ import xiaozhi.modules.device.service.OtaService;
 @RequestMapping("/otaMag")
 public class OTAMagController {
     private static final Logger logger = LoggerFactory.getLogger(OTAController.class);
+    private static final Pattern MD5_PATTERN = Pattern.compile("[0-9a-fA-F]{32}");
+    /**
+     * 每个下载链接允许的完整下载次数
+     */
+    private static final int MAX_DOWNLOADS = 3;
+    /**
+     * 每次下载允许的续传次数，超出后按新下载计数
+     */
+    private static final int MAX_RESUMES = 10;
+    /**
+     * 下载进行中标记的有效期，单位：秒
+     */
+    private static final long RESUME_EXPIRE = 30 * 60L;
     private final OtaService otaService;
     private final RedisUtils redisUtils;
 
@@ -137,29 +156,15 @@ public class OTAMagController {
 
     @GetMapping("/download/{uuid}")
     @Operation(summary = "download firmware file")
-    public ResponseEntity<byte[]> downloadFirmware(@PathVariable("uuid") String uuid) {
+    public ResponseEntity<Resource> downloadFirmware(@PathVariable("uuid") String uuid,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+            @RequestHeader(value = HttpHeaders.IF_RANGE, required = false) String ifRange,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         String id = (String) redisUtils.get(RedisKeys.getOtaIdKey(uuid));
         if (StringUtils.isBlank(id)) {
             return ResponseEntity.notFound().build();
         }
 
-        // 检查下载次数
-        String downloadCountKey = RedisKeys.getOtaDownloadCountKey(uuid);
-        Integer downloadCount = (Integer) redisUtils.get(downloadCountKey);
-        if (downloadCount == null) {
-            downloadCount = 0;
-        }
-
-        // 如果下载次数超过3次，返回404
-        if (downloadCount >= 3) {
-            redisUtils.delete(downloadCountKey);
-            redisUtils.delete(RedisKeys.getOtaIdKey(uuid));
-            logger.warn("Download limit exceeded for UUID: {}", uuid);
-            return ResponseEntity.notFound().build();
-        }
-
-        redisUtils.set(downloadCountKey, downloadCount + 1);
-
         try {
             // 获取固件信息
             OtaEntity otaEntity = otaService.selectById(id);
@@ -168,39 +173,23 @@ public class OTAMagController {
                 return ResponseEntity.notFound().build();
             }
 
-            // 获取文件路径 - 确保路径是绝对路径或正确的相对路径
             String firmwarePath = otaEntity.getFirmwarePath();
-            Path path;
-
-            // 检查是否是绝对路径
-            if (Paths.get(firmwarePath).isAbsolute()) {
-                path = Paths.get(firmwarePath);
-            } else {
-                // 如果是相对路径，则从当前工作目录解析
-                path = Paths.get(System.getProperty("user.dir"), firmwarePath);
+            Path path = resolveFirmwarePath(id, firmwarePath);
+            if (path == null) {
+                return ResponseEntity.notFound().build();
             }
+            long size = Files.size(path);
+            String eTag = firmwareETag(path, size);
 
-            logger.info("Attempting to download firmware for ID: {}, DB path: {}, resolved path: {}",
-                    id, firmwarePath, path.toAbsolutePath());
-
-            if (!Files.exists(path) || !Files.isRegularFile(path)) {
-                // 尝试直接从firmware目录下查找文件名
-                String fileName = new File(firmwarePath).getName();
-                Path altPath = Paths.get(System.getProperty("user.dir"), "firmware", fileName);
-
-                logger.info("File not found at primary path, trying alternative path: {}", altPath.toAbsolutePath());
-
-                if (Files.exists(altPath) && Files.isRegularFile(altPath)) {
-                    path = altPath;
-                } else {
-                    logger.error("Firmware file not found at either path: {} or {}",
-                            path.toAbsolutePath(), altPath.toAbsolutePath());
-                    return ResponseEntity.notFound().build();
-                }
+            // 客户端已有相同文件，返回304，不占用下载次数
+            if (matchesETag(ifNoneMatch, eTag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
             }
 
-            // 读取文件内容
-            byte[] fileContent = Files.readAllBytes(path);
+            // 只有进行中下载的续传请求不计入下载次数，其余请求（包括伪造的Range）都计数
+            if (!isResumeRequest(uuid, range, ifRange, eTag) && !countDownload(uuid)) {
+                return ResponseEntity.notFound().build();
+            }
 
             // 设置响应头
             String originalFilename = otaEntity.getType() + "_" + otaEntity.getVersion();
@@ -212,13 +201,16 @@ public class OTAMagController {
             // 清理文件名，移除不安全字符
             String safeFilename = originalFilename.replaceAll("[^a-zA-Z0-9._-]", "_");
 
-            logger.info("Providing download for firmware ID: {}, filename: {}, size: {} bytes",
-                    id, safeFilename, fileContent.length);
+            logger.info("Providing download for firmware ID: {}, filename: {}, size: {} bytes, range: {}",
+                    id, safeFilename, size, range);
 
+            // 返回文件资源，由框架流式输出，并处理Range（206）和If-None-Match（304）
             return ResponseEntity.ok()
                     .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                    .eTag(eTag)
+                    .lastModified(Files.getLastModifiedTime(path).toMillis())
                     .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + safeFilename + "\"")
-                    .body(fileContent);
+                    .body(new FileSystemResource(path));
         } catch (IOException e) {
             logger.error("Error reading firmware file for ID: {}", id, e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
@@ -228,6 +220,130 @@ public class OTAMagController {
         }
     }
 
+    /**
+     * 解析固件文件路径，数据库中的路径不存在时尝试从firmware目录下查找同名文件
+     *
+     * @return 文件路径，找不到时返回null
+     */
+    private Path resolveFirmwarePath(String id, String firmwarePath) {
+        Path path;
+
+        // 检查是否是绝对路径
+        if (Paths.get(firmwarePath).isAbsolute()) {
+            path = Paths.get(firmwarePath);
+        } else {
+            // 如果是相对路径，则从当前工作目录解析
+            path = Paths.get(System.getProperty("user.dir"), firmwarePath);
+        }
+
+        logger.info("Attempting to download firmware for ID: {}, DB path: {}, resolved path: {}",
+                id, firmwarePath, path.toAbsolutePath());
+
+        if (Files.isRegularFile(path)) {
+            return path;
+        }
+
+        // 尝试直接从firmware目录下查找文件名
+        String fileName = new File(firmwarePath).getName();
+        Path altPath = Paths.get(System.getProperty("user.dir"), "firmware", fileName);
+
+        logger.info("File not found at primary path, trying alternative path: {}", altPath.toAbsolutePath());
+
+        if (Files.isRegularFile(altPath)) {
+            return altPath;
+        }
+        logger.error("Firmware file not found at either path: {} or {}",
+                path.toAbsolutePath(), altPath.toAbsolutePath());
+        return null;
+    }
+
+    /**
+     * 计入一次下载，超过次数限制时删除下载链接
+     *
+     * @return 是否允许下载
+     */
+    private boolean countDownload(String uuid) {
+        String downloadCountKey = RedisKeys.getOtaDownloadCountKey(uuid);
+        Integer downloadCount = (Integer) redisUtils.get(downloadCountKey);
+        if (downloadCount == null) {
+            downloadCount = 0;
+        }
+
+        // 如果下载次数超过3次，返回404
+        if (downloadCount >= MAX_DOWNLOADS) {
+            redisUtils.delete(downloadCountKey);
+            redisUtils.delete(RedisKeys.getOtaIdKey(uuid));
+            redisUtils.delete(RedisKeys.getOtaDownloadResumeKey(uuid));
+            logger.warn("Download limit exceeded for UUID: {}", uuid);
+            return false;
+        }
+
+        redisUtils.set(downloadCountKey, downloadCount + 1);
+        // 标记下载进行中，之后一段时间内的续传请求不再计数
+        redisUtils.set(RedisKeys.getOtaDownloadResumeKey(uuid), 0, RESUME_EXPIRE);
+        return true;
+    }
+
+    /**
+     * 是否为进行中下载的续传请求：单个从非0字节开始的Range，If-Range（如有）与当前ETag一致，
+     * 且此前有计数的下载仍在续传时间窗口内、续传次数未超过上限
+     */
+    private boolean isResumeRequest(String uuid, String range, String ifRange, String eTag) {
+        if (StringUtils.isBlank(range)) {
+            return false;
+        }
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(range);
+            if (ranges.size() != 1 || ranges.get(0).getRangeStart(Long.MAX_VALUE) <= 0) {
+                return false;
+            }
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        if (StringUtils.isNotBlank(ifRange) && !eTag.equals(ifRange)) {
+            return false;
+        }
+        String resumeKey = RedisKeys.getOtaDownloadResumeKey(uuid);
+        if (redisUtils.get(resumeKey) == null) {
+            return false;
+        }
+        Long resumed = redisUtils.increment(resumeKey, RESUME_EXPIRE);
+        return resumed != null && resumed <= MAX_RESUMES;
+    }
+
+    /**
+     * If-None-Match是否包含当前ETag，支持多个值和弱校验前缀。*只对If-Match有意义，这里不当作命中
+     */
+    private boolean matchesETag(String ifNoneMatch, String eTag) {
+        if (StringUtils.isBlank(ifNoneMatch)) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (eTag.equals(tag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 上传的固件以MD5命名，直接用作ETag；其他文件用大小和修改时间生成
+     */
+    private String firmwareETag(Path path, long size) throws IOException {
+        String fileName = path.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        String baseName = dot > 0 ? fileName.substring(0, dot) : fileName;
+        if (MD5_PATTERN.matcher(baseName).matches()) {
+            return "\"" + baseName.toLowerCase() + "\"";
+        }
+        return "\"" + Long.toHexString(size) + "-"
+                + Long.toHexString(Files.getLastModifiedTime(path).toMillis()) + "\"";
+    }
+
     @PostMapping("/upload")
     @Operation(summary = "upload firmware file")
     @RequiresPermissions("sys:role:superAdmin")
@@ -1,12 +1,17 @@
 package xiaozhi.modules.device.dao;
 
+import java.util.Collection;
 import java.util.Date;
+import java.util.List;
+import java.util.Map;
 
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 
 import xiaozhi.modules.device.entity.DeviceEntity;
+import xiaozhi.modules.device.vo.AgentDeviceStatsVO;
 
 @Mapper
 public interface DeviceDao extends BaseMapper<DeviceEntity> {
@@ -18,4 +23,20 @@ public interface DeviceDao extends BaseMapper<DeviceEntity> {
      */
     Date getAllLastConnectedAtByAgentId(String agentId);
 
+    /**
+     * 按智能体分组统计设备数量和最近的最后连接时间，没有设备的智能体不返回
+     *
+     * @param agentIds 智能体id
+     * @return 每个智能体一行
+     */
+    List<AgentDeviceStatsVO> getDeviceStatsByAgentIds(@Param("agentIds") Collection<String> agentIds);
+
+    /**
+     * 按用户分组统计设备数量，没有设备的用户不返回
+     *
+     * @param userIds 用户id
+     * @return 每个用户一行，包含userId和deviceCount
+     */
+    List<Map<String, Object>> getDeviceCountsByUserIds(@Param("userIds") Collection<Long> userIds);
+
 }
\ No newline at end of file
@@ -1,7 +1,9 @@
 package xiaozhi.modules.device.service;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 import xiaozhi.common.page.PageData;
 import xiaozhi.common.service.BaseService;
@@ -9,6 +11,7 @@ import xiaozhi.modules.device.dto.DevicePageUserDTO;
 import xiaozhi.modules.device.dto.DeviceReportReqDTO;
 import xiaozhi.modules.device.dto.DeviceReportRespDTO;
 import xiaozhi.modules.device.entity.DeviceEntity;
+import xiaozhi.modules.device.vo.AgentDeviceStatsVO;
 import xiaozhi.modules.device.vo.UserShowDeviceListVO;
 
 public interface DeviceService extends BaseService<DeviceEntity> {
@@ -56,6 +59,14 @@ public interface DeviceService extends BaseService<DeviceEntity> {
      */
     Long selectCountByUserId(Long userId);
 
+    /**
+     * 批量获取用户的设备数量，一次分组查询
+     *
+     * @param userIds 用户id
+     * @return 用户id到设备数量，没有设备的用户不包含在内
+     */
+    Map<Long, Long> selectCountByUserIds(Collection<Long> userIds);
+
     /**
      * 分页获取全部设备信息
      *
@@ -87,5 +98,11 @@ public interface DeviceService extends BaseService<DeviceEntity> {
      */
     Date getLatestLastConnectionTime(String agentId);
 
+    /**
+     * 批量获取智能体的设备数量和最近的最后连接时间，缓存以一次MGET读取，未命中的以一条分组查询加载
+     * @param agentIds 智能体id
+     * @return 智能体id到统计的映射，每个传入的智能体都有对应项
+     */
+    Map<String, AgentDeviceStatsVO> getAgentDeviceStats(Collection<String> agentIds);
 
 }
\ No newline at end of file
@@ -1,12 +1,16 @@
 package xiaozhi.modules.device.service.impl;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TimeZone;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.aop.framework.AopContext;
@@ -32,14 +36,16 @@ import xiaozhi.common.service.impl.BaseServiceImpl;
 import xiaozhi.common.user.UserDetail;
 import xiaozhi.common.utils.ConvertUtils;
 import xiaozhi.common.utils.DateUtils;
+import xiaozhi.modules.device.cache.BoundMacFilter;
+import xiaozhi.modules.device.cache.LatestFirmwareIndex;
+import xiaozhi.modules.device.cache.LatestFirmwareIndex.LatestFirmware;
 import xiaozhi.modules.device.dao.DeviceDao;
 import xiaozhi.modules.device.dto.DevicePageUserDTO;
 import xiaozhi.modules.device.dto.DeviceReportReqDTO;
 import xiaozhi.modules.device.dto.DeviceReportRespDTO;
 import xiaozhi.modules.device.entity.DeviceEntity;
-import xiaozhi.modules.device.entity.OtaEntity;
 import xiaozhi.modules.device.service.DeviceService;
-import xiaozhi.modules.device.service.OtaService;
+import xiaozhi.modules.device.vo.AgentDeviceStatsVO;
 import xiaozhi.modules.device.vo.UserShowDeviceListVO;
 import xiaozhi.modules.security.user.SecurityUser;
 import xiaozhi.modules.sys.service.SysParamsService;
@@ -50,11 +56,17 @@ import xiaozhi.modules.sys.service.SysUserUtilService;
 @AllArgsConstructor
 public class DeviceServiceImpl extends BaseServiceImpl<DeviceDao, DeviceEntity> implements DeviceService {
 
+    /**
+     * 智能体设备数量缓存时长，单位：秒
+     */
+    private static final long DEVICE_COUNT_EXPIRE = 60;
+
     private final DeviceDao deviceDao;
     private final SysUserUtilService sysUserUtilService;
     private final SysParamsService sysParamsService;
     private final RedisUtils redisUtils;
-    private final OtaService otaService;
+    private final LatestFirmwareIndex latestFirmwareIndex;
+    private final BoundMacFilter boundMacFilter;
 
     @Async
     public void updateDeviceConnectionInfo(String agentId, String deviceId, String appVersion) {
@@ -123,6 +135,7 @@ public class DeviceServiceImpl extends BaseServiceImpl<DeviceDao, DeviceEntity>
         deviceEntity.setUpdateDate(currentTime);
         deviceEntity.setLastConnectedAt(currentTime);
         deviceDao.insert(deviceEntity);
+        boundMacFilter.markBound(macAddress);
 
         // 清理redis缓存
         redisUtils.delete(cacheDeviceKey);
@@ -221,6 +234,18 @@ public class DeviceServiceImpl extends BaseServiceImpl<DeviceDao, DeviceEntity>
         return baseDao.selectCount(wrapper);
     }
 
+    @Override
+    public Map<Long, Long> selectCountByUserIds(Collection<Long> userIds) {
+        Map<Long, Long> result = new HashMap<>();
+        if (userIds == null || userIds.isEmpty()) {
+            return result;
+        }
+        for (Map<String, Object> row : baseDao.getDeviceCountsByUserIds(userIds)) {
+            result.put(((Number) row.get("userId")).longValue(), ((Number) row.get("deviceCount")).longValue());
+        }
+        return result;
+    }
+
     @Override
     public void deleteByAgentId(String agentId) {
         UpdateWrapper<DeviceEntity> wrapper = new UpdateWrapper<>();
@@ -239,13 +264,15 @@ public class DeviceServiceImpl extends BaseServiceImpl<DeviceDao, DeviceEntity>
                 new QueryWrapper<DeviceEntity>()
                         // 必须设备关键词查找
                         .like(StringUtils.isNotBlank(dto.getKeywords()), "alias", dto.getKeywords()));
+        // 本页所有用户名一次批量获取
+        Map<Long, String> usernames = sysUserUtilService.assignUsernames(
+                page.getRecords().stream().map(DeviceEntity::getUserId).toList());
         // 循环处理page获取回来的数据，返回需要的字段
         List<UserShowDeviceListVO> list = page.getRecords().stream().map(device -> {
             UserShowDeviceListVO vo = ConvertUtils.sourceToTarget(device, UserShowDeviceListVO.class);
             // 把最后修改的时间，改为简短描述的时间
             vo.setRecentChatTime(DateUtils.getShortTime(device.getUpdateDate()));
-            sysUserUtilService.assignUsername(device.getUserId(),
-                    vo::setBindUserName);
+            vo.setBindUserName(usernames.get(device.getUserId()));
             vo.setDeviceType(device.getBoard());
             return vo;
         }).toList();
@@ -258,9 +285,17 @@ public class DeviceServiceImpl extends BaseServiceImpl<DeviceDao, DeviceEntity>
         if (StringUtils.isBlank(macAddress)) {
             return null;
         }
+        // 确定未绑定的MAC无需查询数据库
+        if (boundMacFilter.isKnownUnbound(macAddress)) {
+            return null;
+        }
         QueryWrapper<DeviceEntity> wrapper = new QueryWrapper<>();
         wrapper.eq("mac_address", macAddress);
-        return baseDao.selectOne(wrapper);
+        DeviceEntity device = baseDao.selectOne(wrapper);
+        if (device == null) {
+            boundMacFilter.markUnbound(macAddress);
+        }
+        return device;
     }
 
     private DeviceReportRespDTO.ServerTime buildServerTime() {
@@ -298,6 +333,63 @@ public class DeviceServiceImpl extends BaseServiceImpl<DeviceDao, DeviceEntity>
         return maxDate;
     }
 
+    @Override
+    public Map<String, AgentDeviceStatsVO> getAgentDeviceStats(Collection<String> agentIds) {
+        List<String> ids = agentIds.stream().filter(StringUtils::isNotBlank).distinct().toList();
+        Map<String, AgentDeviceStatsVO> result = new LinkedHashMap<>();
+        if (ids.isEmpty()) {
+            return result;
+        }
+        List<String> keys = new ArrayList<>(ids.size() * 2);
+        for (String agentId : ids) {
+            keys.add(RedisKeys.getAgentDeviceCountById(agentId));
+            keys.add(RedisKeys.getAgentDeviceLastConnectedAtById(agentId));
+        }
+        List<Object> cached = redisUtils.multiGet(keys);
+
+        // 以设备数量是否命中判断，两者同时回填，数量缓存时长更短；数量命中而最后连接时间为空说明尚无连接记录，
+        // 新的连接会直接写入最后连接时间，无需为空值缓存占位
+        List<String> missIds = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i++) {
+            Object count = cached == null ? null : cached.get(i * 2);
+            Object lastConnectedAt = cached == null ? null : cached.get(i * 2 + 1);
+            AgentDeviceStatsVO stats = new AgentDeviceStatsVO();
+            stats.setAgentId(ids.get(i));
+            stats.setDeviceCount((Integer) count);
+            stats.setLastConnectedAt((Date) lastConnectedAt);
+            result.put(ids.get(i), stats);
+            if (count == null) {
+                missIds.add(ids.get(i));
+            }
+        }
+        if (missIds.isEmpty()) {
+            return result;
+        }
+
+        Map<String, AgentDeviceStatsVO> loaded = new HashMap<>();
+        for (AgentDeviceStatsVO stats : deviceDao.getDeviceStatsByAgentIds(missIds)) {
+            loaded.put(stats.getAgentId(), stats);
+        }
+        for (String agentId : missIds) {
+            AgentDeviceStatsVO stats = loaded.get(agentId);
+            result.get(agentId).setDeviceCount(stats == null ? 0 : stats.getDeviceCount());
+            result.get(agentId).setLastConnectedAt(stats == null ? null : stats.getLastConnectedAt());
+        }
+        // 回填缓存，过期时长与逐个查询时一致
+        redisUtils.pipeline(operations -> {
+            for (String agentId : missIds) {
+                AgentDeviceStatsVO stats = result.get(agentId);
+                operations.opsForValue().set(RedisKeys.getAgentDeviceCountById(agentId), stats.getDeviceCount(),
+                        DEVICE_COUNT_EXPIRE, TimeUnit.SECONDS);
+                if (stats.getLastConnectedAt() != null) {
+                    operations.opsForValue().set(RedisKeys.getAgentDeviceLastConnectedAtById(agentId),
+                            stats.getLastConnectedAt(), RedisUtils.DEFAULT_EXPIRE, TimeUnit.SECONDS);
+                }
+            }
+        });
+        return result;
+    }
+
     private String getDeviceCacheKey(String deviceId) {
         String safeDeviceId = deviceId.replace(":", "_").toLowerCase();
         String dataKey = String.format("ota:activation:data:%s", safeDeviceId);
@@ -354,13 +446,13 @@ public class DeviceServiceImpl extends BaseServiceImpl<DeviceDao, DeviceEntity>
             currentVersion = "0.0.0";
         }
 
-        OtaEntity ota = otaService.getLatestOta(type);
+        LatestFirmware ota = latestFirmwareIndex.get(type);
         DeviceReportRespDTO.Firmware firmware = new DeviceReportRespDTO.Firmware();
         String downloadUrl = null;
 
         if (ota != null) {
             // 如果设备没有版本信息，或者OTA版本比设备版本新，则返回下载地址
-            if (compareVersions(ota.getVersion(), currentVersion) > 0) {
+            if (ota.isNewerThan(currentVersion)) {
                 String otaUrl = sysParamsService.getValue(Constant.SERVER_OTA, true);
                 if (StringUtils.isBlank(otaUrl) || otaUrl.equals("null")) {
                     log.error("OTA address not configured, please log into smart console, and configure【server.OTA】under parameter management");
@@ -381,33 +473,4 @@ public class DeviceServiceImpl extends BaseServiceImpl<DeviceDao, DeviceEntity>
         firmware.setUrl(downloadUrl == null ? Constant.INVALID_FIRMWARE_URL : downloadUrl);
         return firmware;
     }
-
-    /**
-     * 比较两个版本号
-     * 
-     * @param version1 版本1
-     * @param version2 版本2
-     * @return 如果version1 > version2返回1，version1 < version2返回-1，相等返回0
-     */
-    private static int compareVersions(String version1, String version2) {
-        if (version1 == null || version2 == null) {
-            return 0;
-        }
-
-        String[] v1Parts = version1.split("\\.");
-        String[] v2Parts = version2.split("\\.");
-
-        int length = Math.max(v1Parts.length, v2Parts.length);
-        for (int i = 0; i < length; i++) {
-            int v1 = i < v1Parts.length ? Integer.parseInt(v1Parts[i]) : 0;
-            int v2 = i < v2Parts.length ? Integer.parseInt(v2Parts[i]) : 0;
-
-            if (v1 > v2) {
-                return 1;
-            } else if (v1 < v2) {
-                return -1;
-            }
-        }
-        return 0;
-    }
 }
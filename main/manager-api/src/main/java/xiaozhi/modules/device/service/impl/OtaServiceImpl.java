@@ -11,14 +11,19 @@ import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 
 import io.micrometer.common.util.StringUtils;
+import lombok.AllArgsConstructor;
 import xiaozhi.common.page.PageData;
 import xiaozhi.common.service.impl.BaseServiceImpl;
+import xiaozhi.modules.device.cache.LatestFirmwareIndex;
+import xiaozhi.modules.device.cache.LatestFirmwareIndex.LatestFirmware;
 import xiaozhi.modules.device.dao.OtaDao;
 import xiaozhi.modules.device.entity.OtaEntity;
 import xiaozhi.modules.device.service.OtaService;
 
 @Service
+@AllArgsConstructor
 public class OtaServiceImpl extends BaseServiceImpl<OtaDao, OtaEntity> implements OtaService {
+    private final LatestFirmwareIndex latestFirmwareIndex;
 
     @Override
     public PageData<OtaEntity> page(Map<String, Object> params) {
@@ -52,11 +57,13 @@ public class OtaServiceImpl extends BaseServiceImpl<OtaDao, OtaEntity> implement
 
         entity.setUpdateDate(new Date());
         baseDao.updateById(entity);
+        latestFirmwareIndex.refresh();
     }
 
     @Override
     public void delete(String[] ids) {
         baseDao.deleteBatchIds(Arrays.asList(ids));
+        latestFirmwareIndex.refresh();
     }
 
     @Override
@@ -69,17 +76,17 @@ public class OtaServiceImpl extends BaseServiceImpl<OtaDao, OtaEntity> implement
             OtaEntity otaBefore = otaList.getFirst();
             entity.setId(otaBefore.getId());
             baseDao.updateById(entity);
+            latestFirmwareIndex.refresh();
             return true;
         }
-        return baseDao.insert(entity) > 0;
+        boolean saved = baseDao.insert(entity) > 0;
+        latestFirmwareIndex.refresh();
+        return saved;
     }
 
     @Override
     public OtaEntity getLatestOta(String type) {
-        QueryWrapper<OtaEntity> wrapper = new QueryWrapper<>();
-        wrapper.eq("type", type)
-                .orderByDesc("update_date")
-                .last("LIMIT 1");
-        return baseDao.selectOne(wrapper);
+        LatestFirmware latest = latestFirmwareIndex.get(type);
+        return latest == null ? null : latest.getOta();
     }
 }
\ No newline at end of file
@@ -0,0 +1,24 @@
+package xiaozhi.modules.device.vo;
+
+import java.util.Date;
+
+import lombok.Data;
+
+/**
+ * 智能体的设备统计
+ */
+@Data
+public class AgentDeviceStatsVO {
+    /**
+     * 智能体ID
+     */
+    private String agentId;
+    /**
+     * 设备数量
+     */
+    private Integer deviceCount;
+    /**
+     * 全部设备中最近的最后连接时间
+     */
+    private Date lastConnectedAt;
+}
@@ -1,6 +1,8 @@
 package xiaozhi.modules.model.service;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import xiaozhi.common.page.PageData;
 import xiaozhi.common.service.BaseService;
@@ -29,6 +31,14 @@ public interface ModelConfigService extends BaseService<ModelConfigEntity> {
      */
     String getModelNameById(String id);
 
+    /**
+     * 批量获取模型名称，缓存以一次MGET读取，未命中的以一条查询加载
+     * 
+     * @param ids 模型ID
+     * @return 模型ID到名称的映射，不存在的模型不包含在内
+     */
+    Map<String, String> getModelNamesByIds(Collection<String> ids);
+
     /**
      * 根据ID获取模型配置
      * 
@@ -1,5 +1,7 @@
 package xiaozhi.modules.model.service.impl;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -17,11 +19,13 @@ import xiaozhi.common.constant.Constant;
 import xiaozhi.common.exception.RenException;
 import xiaozhi.common.page.PageData;
 import xiaozhi.common.redis.RedisKeys;
+import xiaozhi.common.redis.RedisNearCache;
 import xiaozhi.common.redis.RedisUtils;
 import xiaozhi.common.service.impl.BaseServiceImpl;
 import xiaozhi.common.utils.ConvertUtils;
 import xiaozhi.modules.agent.dao.AgentDao;
 import xiaozhi.modules.agent.entity.AgentEntity;
+import xiaozhi.modules.config.cache.AgentConfigSnapshotCache;
 import xiaozhi.modules.model.dao.ModelConfigDao;
 import xiaozhi.modules.model.dto.ModelBasicInfoDTO;
 import xiaozhi.modules.model.dto.ModelConfigBodyDTO;
@@ -38,8 +42,9 @@ public class ModelConfigServiceImpl extends BaseServiceImpl<ModelConfigDao, Mode
 
     private final ModelConfigDao modelConfigDao;
     private final ModelProviderService modelProviderService;
-    private final RedisUtils redisUtils;
+    private final RedisNearCache redisNearCache;
     private final AgentDao agentDao;
+    private final AgentConfigSnapshotCache agentConfigSnapshotCache;
 
     @Override
     public List<ModelBasicInfoDTO> getModelCodeList(String modelType, String modelName) {
@@ -101,7 +106,9 @@ public class ModelConfigServiceImpl extends BaseServiceImpl<ModelConfigDao, Mode
         modelConfigEntity.setModelType(modelType);
         modelConfigDao.updateById(modelConfigEntity);
         // 清除缓存
-        redisUtils.delete(RedisKeys.getModelConfigById(modelConfigEntity.getId()));
+        redisNearCache.delete(RedisKeys.getModelConfigById(modelConfigEntity.getId()));
+        redisNearCache.delete(RedisKeys.getModelNameById(modelConfigEntity.getId()));
+        agentConfigSnapshotCache.evictByModel(modelConfigEntity.getId());
         return ConvertUtils.sourceToTarget(modelConfigEntity, ModelConfigDTO.class);
     }
 
@@ -117,6 +124,9 @@ public class ModelConfigServiceImpl extends BaseServiceImpl<ModelConfigDao, Mode
         checkIntentConfigReference(id);
 
         modelConfigDao.deleteById(id);
+        redisNearCache.delete(RedisKeys.getModelConfigById(id));
+        redisNearCache.delete(RedisKeys.getModelNameById(id));
+        agentConfigSnapshotCache.evictByModel(id);
     }
 
     /**
@@ -171,22 +181,45 @@ public class ModelConfigServiceImpl extends BaseServiceImpl<ModelConfigDao, Mode
             return null;
         }
 
-        String cachedName = (String) redisUtils.get(RedisKeys.getModelNameById(id));
+        String modelName = redisNearCache.getOrLoad(RedisKeys.getModelNameById(id), () -> {
+            ModelConfigEntity entity = modelConfigDao.selectById(id);
+            return entity == null || StringUtils.isBlank(entity.getModelName()) ? null : entity.getModelName();
+        });
+        return StringUtils.isNotBlank(modelName) ? modelName : null;
+    }
 
-        if (StringUtils.isNotBlank(cachedName)) {
-            return cachedName;
+    @Override
+    public Map<String, String> getModelNamesByIds(Collection<String> ids) {
+        List<String> distinctIds = ids.stream().filter(StringUtils::isNotBlank).distinct().toList();
+        Map<String, String> result = new HashMap<>();
+        if (distinctIds.isEmpty()) {
+            return result;
         }
-
-        ModelConfigEntity entity = modelConfigDao.selectById(id);
-        if (entity != null) {
-            String modelName = entity.getModelName();
-            if (StringUtils.isNotBlank(modelName)) {
-                redisUtils.set(RedisKeys.getModelNameById(id), modelName);
+        List<String> keys = distinctIds.stream().map(RedisKeys::getModelNameById).toList();
+        List<Object> cached = redisNearCache.multiGet(keys, RedisNearCache.DEFAULT_LOCAL_EXPIRE);
+        List<String> missIds = new ArrayList<>();
+        for (int i = 0; i < distinctIds.size(); i++) {
+            if (cached.get(i) instanceof String name && StringUtils.isNotBlank(name)) {
+                result.put(distinctIds.get(i), name);
+            } else {
+                missIds.add(distinctIds.get(i));
             }
-            return modelName;
         }
-
-        return null;
+        if (missIds.isEmpty()) {
+            return result;
+        }
+        List<ModelConfigEntity> entities = modelConfigDao.selectList(new QueryWrapper<ModelConfigEntity>()
+                .select("id", "model_name")
+                .in("id", missIds));
+        Map<String, Object> loaded = new HashMap<>();
+        for (ModelConfigEntity entity : entities) {
+            if (StringUtils.isNotBlank(entity.getModelName())) {
+                result.put(entity.getId(), entity.getModelName());
+                loaded.put(RedisKeys.getModelNameById(entity.getId()), entity.getModelName());
+            }
+        }
+        redisNearCache.multiPut(loaded, RedisUtils.DEFAULT_EXPIRE, RedisNearCache.DEFAULT_LOCAL_EXPIRE);
+        return result;
     }
 
     @Override
@@ -195,14 +228,14 @@ public class ModelConfigServiceImpl extends BaseServiceImpl<ModelConfigDao, Mode
             return null;
         }
         if (isCache) {
-            ModelConfigEntity cachedConfig = (ModelConfigEntity) redisUtils.get(RedisKeys.getModelConfigById(id));
-            if (cachedConfig != null) {
-                return ConvertUtils.sourceToTarget(cachedConfig, ModelConfigEntity.class);
-            }
+            ModelConfigEntity cachedConfig = redisNearCache.getOrLoad(RedisKeys.getModelConfigById(id),
+                    () -> modelConfigDao.selectById(id));
+            // 缓存对象被多个请求共享，返回副本
+            return cachedConfig == null ? null : ConvertUtils.sourceToTarget(cachedConfig, ModelConfigEntity.class);
         }
         ModelConfigEntity entity = modelConfigDao.selectById(id);
         if (entity != null) {
-            redisUtils.set(RedisKeys.getModelConfigById(id), entity);
+            redisNearCache.put(RedisKeys.getModelConfigById(id), entity);
         }
         return entity;
     }
@@ -40,6 +40,10 @@ public class Oauth2Realm extends AuthorizingRealm {
     @Resource
     private ShiroService shiroService;
 
+    @Lazy
+    @Resource
+    private Oauth2TokenCache oauth2TokenCache;
+
     private static final Logger logger = LoggerFactory.getLogger(Oauth2Realm.class);
 
     @Override
@@ -76,6 +80,13 @@ public class Oauth2Realm extends AuthorizingRealm {
     protected AuthenticationInfo doGetAuthenticationInfo(AuthenticationToken token) throws AuthenticationException {
         String accessToken = (String) token.getPrincipal();
 
+        // 已缓存的token，缓存中只有状态正常的用户
+        UserDetail cachedUser = oauth2TokenCache.get(accessToken);
+        if (cachedUser != null) {
+            return new SimpleAuthenticationInfo(cachedUser, accessToken, getName());
+        }
+        long stamp = oauth2TokenCache.currentStamp();
+
         // 根据accessToken，查询用户信息
         SysUserTokenEntity tokenEntity = shiroService.getByToken(accessToken);
         // token失效
@@ -101,6 +112,8 @@ public class Oauth2Realm extends AuthorizingRealm {
             throw new LockedAccountException(MessageUtils.getMessage(ErrorCode.ACCOUNT_LOCK));
         }
 
+        oauth2TokenCache.put(userDetail, tokenEntity.getExpireDate(), stamp);
+
         SimpleAuthenticationInfo info = new SimpleAuthenticationInfo(userDetail, accessToken, getName());
         return info;
     }
@@ -0,0 +1,153 @@
+package xiaozhi.modules.security.oauth2;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import xiaozhi.common.redis.RedisKeys;
+import xiaozhi.common.redis.RedisRecoveredEvent;
+import xiaozhi.common.redis.RedisUtils;
+import xiaozhi.common.user.UserDetail;
+
+/**
+ * 登录token本地缓存
+ * <p>
+ * 缓存token对应的用户信息，有效期不超过token的过期时间，命中时认证无需查询数据库。
+ * 退出登录、修改密码、禁用或删除用户时按用户ID撤销，并通过Redis发布订阅通知所有节点
+ */
+@Component
+@RequiredArgsConstructor
+public class Oauth2TokenCache implements MessageListener {
+    /**
+     * 本地缓存最长保留时间，兜底未经撤销的用户信息变更，单位：分钟
+     */
+    private static final long MAX_EXPIRE_MINUTES = 10;
+    private static final long MAXIMUM_SIZE = 10000;
+    private static final RedisSerializer<Object> MESSAGE_SERIALIZER = RedisSerializer.json();
+
+    private final RedisUtils redisUtils;
+    private final RedisMessageListenerContainer listenerContainer;
+
+    private final Cache<String, CachedToken> localCache = CacheBuilder.newBuilder()
+            .maximumSize(MAXIMUM_SIZE)
+            .expireAfterWrite(MAX_EXPIRE_MINUTES, TimeUnit.MINUTES)
+            .build();
+
+    /**
+     * 每次撤销时递增，查询期间发生过撤销的结果不放入缓存
+     */
+    private final AtomicLong revokeStamp = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(RedisKeys.getTokenRevokeChannel()));
+    }
+
+    /**
+     * 获取token对应的用户信息
+     *
+     * @param token 登录token
+     * @return 用户信息，未缓存或已过期时返回null
+     */
+    public UserDetail get(String token) {
+        CachedToken cached = localCache.getIfPresent(token);
+        if (cached == null) {
+            return null;
+        }
+        if (cached.expireAt < System.currentTimeMillis()) {
+            localCache.invalidate(token);
+            return null;
+        }
+        return cached.userDetail;
+    }
+
+    /**
+     * 查询数据库前获取当前撤销版本，写入时传回
+     */
+    public long currentStamp() {
+        return revokeStamp.get();
+    }
+
+    /**
+     * 缓存token对应的用户信息
+     *
+     * @param userDetail 用户信息
+     * @param expireDate token过期时间
+     * @param stamp      查询前通过{@link #currentStamp()}获取的版本
+     */
+    public void put(UserDetail userDetail, Date expireDate, long stamp) {
+        if (revokeStamp.get() != stamp) {
+            return;
+        }
+        localCache.put(userDetail.getToken(), new CachedToken(userDetail, expireDate.getTime()));
+    }
+
+    /**
+     * 撤销用户的所有token缓存，处于事务中时提交后再撤销一次
+     *
+     * @param userId 用户ID
+     */
+    public void revoke(Long userId) {
+        revokeAndPublish(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    revokeAndPublish(userId);
+                }
+            });
+        }
+    }
+
+    /**
+     * Redis熔断期间收不到其他节点的撤销通知，恢复后清空本地缓存，重新从数据库认证
+     */
+    @EventListener(RedisRecoveredEvent.class)
+    public void onRedisRecovered() {
+        revokeStamp.incrementAndGet();
+        localCache.invalidateAll();
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        Object userId = MESSAGE_SERIALIZER.deserialize(message.getBody());
+        if (userId != null) {
+            revokeLocal(Long.valueOf(userId.toString()));
+        }
+    }
+
+    private void revokeAndPublish(Long userId) {
+        revokeLocal(userId);
+        redisUtils.publish(RedisKeys.getTokenRevokeChannel(), String.valueOf(userId));
+    }
+
+    private void revokeLocal(Long userId) {
+        revokeStamp.incrementAndGet();
+        localCache.asMap().values().removeIf(cached -> userId.equals(cached.userDetail.getId()));
+    }
+
+    private static class CachedToken {
+        private final UserDetail userDetail;
+        private final long expireAt;
+
+        CachedToken(UserDetail userDetail, long expireAt) {
+            this.userDetail = userDetail;
+            this.expireAt = expireAt;
+        }
+    }
+}
@@ -14,6 +14,7 @@ import xiaozhi.common.utils.HttpContextUtils;
 import xiaozhi.common.utils.Result;
 import xiaozhi.modules.security.dao.SysUserTokenDao;
 import xiaozhi.modules.security.entity.SysUserTokenEntity;
+import xiaozhi.modules.security.oauth2.Oauth2TokenCache;
 import xiaozhi.modules.security.oauth2.TokenGenerator;
 import xiaozhi.modules.security.service.SysUserTokenService;
 import xiaozhi.modules.sys.dto.PasswordDTO;
@@ -26,6 +27,7 @@ public class SysUserTokenServiceImpl extends BaseServiceImpl<SysUserTokenDao, Sy
         implements SysUserTokenService {
 
     private final SysUserService sysUserService;
+    private final Oauth2TokenCache oauth2TokenCache;
     /**
      * 12小时后过期
      */
@@ -102,6 +104,7 @@ public class SysUserTokenServiceImpl extends BaseServiceImpl<SysUserTokenDao, Sy
     public void logout(Long userId) {
         Date expireDate = DateUtil.offsetMinute(new Date(), -1);
         baseDao.logout(userId, expireDate);
+        oauth2TokenCache.revoke(userId);
     }
 
     @Override
@@ -112,5 +115,6 @@ public class SysUserTokenServiceImpl extends BaseServiceImpl<SysUserTokenDao, Sy
         // 使 token 失效，后需要重新登录
         Date expireDate = DateUtil.offsetMinute(new Date(), -1);
         baseDao.logout(userId, expireDate);
+        oauth2TokenCache.revoke(userId);
     }
 }
\ No newline at end of file
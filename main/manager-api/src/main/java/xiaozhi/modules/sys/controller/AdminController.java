@@ -1,5 +1,6 @@
 package xiaozhi.modules.sys.controller;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
 
@@ -22,15 +23,23 @@ import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import xiaozhi.common.constant.Constant;
 import xiaozhi.common.page.PageData;
+import xiaozhi.common.redis.RedisCircuitBreaker;
+import xiaozhi.common.redis.RedisMetrics;
+import xiaozhi.common.redis.RedisNearCache;
 import xiaozhi.common.utils.Result;
 import xiaozhi.common.validator.ValidatorUtils;
+import xiaozhi.modules.agent.service.ChatDailyRollupService;
+import xiaozhi.modules.device.cache.BoundMacFilter;
 import xiaozhi.modules.device.dto.DevicePageUserDTO;
 import xiaozhi.modules.device.service.DeviceService;
 import xiaozhi.modules.device.vo.UserShowDeviceListVO;
 import xiaozhi.modules.sys.dto.AdminPageUserDTO;
+import xiaozhi.modules.sys.service.ChatCountService;
+import xiaozhi.modules.sys.service.ChatLimitService;
 import xiaozhi.modules.sys.service.SysUserService;
 import xiaozhi.modules.sys.vo.AdminPageUserVO;
 import xiaozhi.modules.sys.vo.ChatCountVO;
+import xiaozhi.modules.sys.vo.ChatLimitJobVO;
 import xiaozhi.modules.sys.vo.UserChatStatsVO;
 
 /**
@@ -49,6 +58,20 @@ public class AdminController {
 
     private final DeviceService deviceService;
 
+    private final RedisNearCache redisNearCache;
+
+    private final BoundMacFilter boundMacFilter;
+
+    private final RedisCircuitBreaker redisCircuitBreaker;
+
+    private final RedisMetrics redisMetrics;
+
+    private final ChatDailyRollupService chatDailyRollupService;
+
+    private final ChatLimitService chatLimitService;
+
+    private final ChatCountService chatCountService;
+
     @GetMapping("/users")
     @Operation(summary = "paginated user search")
     @RequiresPermissions("sys:role:superAdmin")
@@ -150,44 +173,85 @@ public class AdminController {
     }
 
     @PostMapping("/check-re-enable-accounts/{newLimit}")
-    @Operation(summary = "manually check and re-enable accounts for new chat limit (DEBUG)")
+    @Operation(summary = "start a background job re-enabling accounts within a new chat limit")
     @RequiresPermissions("sys:role:superAdmin")
-    public Result<String> checkReEnableAccounts(@PathVariable Integer newLimit) {
-        log.info("=== ADMIN DEBUG === Manually checking and re-enabling accounts with new limit: {}", newLimit);
-        try {
-            sysUserService.checkAndReEnableAccountsForNewLimit(newLimit);
-            return new Result<String>().ok("Check completed for new limit: " + newLimit);
-        } catch (Exception e) {
-            log.error("=== ADMIN DEBUG === Error checking re-enable accounts", e);
-            return new Result<String>().error("Error: " + e.getMessage());
-        }
+    public Result<ChatLimitJobVO> checkReEnableAccounts(@PathVariable Integer newLimit) {
+        log.info("=== ADMIN === Starting re-enable job with new limit: {}", newLimit);
+        return new Result<ChatLimitJobVO>().ok(chatLimitService.startReEnable(newLimit));
     }
 
     @PostMapping("/check-disable-accounts/{newLimit}")
-    @Operation(summary = "manually check and disable accounts for lower chat limit (DEBUG)")
+    @Operation(summary = "start a background job disabling accounts over a lower chat limit")
     @RequiresPermissions("sys:role:superAdmin")
-    public Result<String> checkDisableAccounts(@PathVariable Integer newLimit) {
-        log.info("=== ADMIN DEBUG === Manually checking and disabling accounts with lower limit: {}", newLimit);
-        try {
-            sysUserService.checkAndDisableAccountsForLowerLimit(newLimit);
-            return new Result<String>().ok("Check completed for lower limit: " + newLimit);
-        } catch (Exception e) {
-            log.error("=== ADMIN DEBUG === Error checking disable accounts", e);
-            return new Result<String>().error("Error: " + e.getMessage());
-        }
+    public Result<ChatLimitJobVO> checkDisableAccounts(@PathVariable Integer newLimit) {
+        log.info("=== ADMIN === Starting disable job with lower limit: {}", newLimit);
+        return new Result<ChatLimitJobVO>().ok(chatLimitService.startDisable(newLimit));
+    }
+
+    @GetMapping("/chat-limit/job")
+    @Operation(summary = "progress of the latest chat limit enforcement job")
+    @RequiresPermissions("sys:role:superAdmin")
+    public Result<ChatLimitJobVO> chatLimitJob() {
+        return new Result<ChatLimitJobVO>().ok(chatLimitService.getCurrentJob());
+    }
+
+    @PostMapping("/chat-limit/job/cancel")
+    @Operation(summary = "cancel the running chat limit enforcement job")
+    @RequiresPermissions("sys:role:superAdmin")
+    public Result<Boolean> cancelChatLimitJob() {
+        return new Result<Boolean>().ok(chatLimitService.cancel());
     }
 
     @PostMapping("/sync-chat-counts")
-    @Operation(summary = "synchronize chat counts from reliable source to database (DEBUG)")
+    @Operation(summary = "synchronize current month chat counts to sys_user in batches, resuming an interrupted run")
     @RequiresPermissions("sys:role:superAdmin")
-    public Result<String> syncChatCountsToDatabase() {
-        log.info("=== ADMIN DEBUG === Manually synchronizing chat counts to database");
-        try {
-            sysUserService.syncChatCountToDatabase();
-            return new Result<String>().ok("Chat count synchronization completed successfully");
-        } catch (Exception e) {
-            log.error("=== ADMIN DEBUG === Error synchronizing chat counts", e);
-            return new Result<String>().error("Error: " + e.getMessage());
-        }
+    @Parameters({
+            @Parameter(name = "restart", description = "ignore the checkpoint and start from the first user", required = false),
+    })
+    public Result<Map<String, Object>> syncChatCountsToDatabase(
+            @RequestParam(defaultValue = "false") boolean restart) {
+        log.info("=== ADMIN === Synchronizing chat counts to database, restart: {}", restart);
+        return new Result<Map<String, Object>>().ok(chatCountService.syncToDatabase(restart));
+    }
+
+    @PostMapping("/chat-rollup/rebuild")
+    @Operation(summary = "rebuild the daily chat rollup from chat history for a date range")
+    @RequiresPermissions("sys:role:superAdmin")
+    @Parameters({
+            @Parameter(name = "from", description = "start date, inclusive (YYYY-MM-DD)", required = true),
+            @Parameter(name = "to", description = "end date, inclusive (YYYY-MM-DD)", required = true),
+    })
+    public Result<Integer> rebuildChatRollup(@RequestParam String from, @RequestParam String to) {
+        log.info("Rebuilding chat daily rollup from {} to {}", from, to);
+        int rows = chatDailyRollupService.rebuild(LocalDate.parse(from), LocalDate.parse(to));
+        return new Result<Integer>().ok(rows);
+    }
+
+    @GetMapping("/cache/stats")
+    @Operation(summary = "local near-cache hit/miss counters per key family")
+    @RequiresPermissions("sys:role:superAdmin")
+    public Result<Map<String, Map<String, Long>>> cacheStats() {
+        return new Result<Map<String, Map<String, Long>>>().ok(redisNearCache.getStats());
+    }
+
+    @GetMapping("/device/mac-filter/stats")
+    @Operation(summary = "bound MAC filter and unbound cache counters")
+    @RequiresPermissions("sys:role:superAdmin")
+    public Result<Map<String, Object>> macFilterStats() {
+        return new Result<Map<String, Object>>().ok(boundMacFilter.getStats());
+    }
+
+    @GetMapping("/redis/circuit/stats")
+    @Operation(summary = "redis circuit breaker state and counters")
+    @RequiresPermissions("sys:role:superAdmin")
+    public Result<Map<String, Object>> redisCircuitStats() {
+        return new Result<Map<String, Object>>().ok(redisCircuitBreaker.getStats());
+    }
+
+    @GetMapping("/redis/metrics")
+    @Operation(summary = "redis calls, latency, hit ratio and payload size per key family")
+    @RequiresPermissions("sys:role:superAdmin")
+    public Result<Map<String, Map<String, Object>>> redisMetrics() {
+        return new Result<Map<String, Map<String, Object>>>().ok(redisMetrics.getStats());
     }
 }
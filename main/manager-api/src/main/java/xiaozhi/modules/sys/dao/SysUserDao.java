@@ -32,4 +32,78 @@ public interface SysUserDao extends BaseDao<SysUserEntity> {
      */
     List<UserChatStatsVO> getUserChatStats();
 
-}
\ No newline at end of file
+    /**
+     * 获取指定用户当月的聊天次数
+     *
+     * @param userId 用户id
+     * @return 当月聊天次数
+     */
+    Integer getUserCurrentMonthChatCount(@Param("userId") Long userId);
+
+    /**
+     * 获取当月有聊天记录的用户及其聊天次数
+     *
+     * @return 用户当月聊天次数列表，仅填充userId和currentMonthCount
+     */
+    List<UserChatStatsVO> getCurrentMonthChatCounts();
+
+    /**
+     * 按id游标获取下一批用户id
+     *
+     * @param afterId   上一批最后一个用户id
+     * @param batchSize 批大小
+     * @return 升序排列的用户id
+     */
+    List<Long> getUserIdsAfter(@Param("afterId") Long afterId, @Param("batchSize") Integer batchSize);
+
+    /**
+     * 获取id范围内当月聊天次数超过限制的启用用户
+     *
+     * @param afterId      起始id（不含）
+     * @param upperId      结束id（含）
+     * @param maxChatCount 最大聊天次数
+     * @return 用户id列表
+     */
+    List<Long> getUserIdsOverChatLimit(@Param("afterId") Long afterId, @Param("upperId") Long upperId,
+            @Param("maxChatCount") Integer maxChatCount);
+
+    /**
+     * 因超出聊天次数限制禁用用户，只更新仍处于启用状态的用户
+     *
+     * @param userIds 用户id列表
+     * @return 禁用的用户数
+     */
+    int disableForChatLimit(@Param("userIds") List<Long> userIds);
+
+    /**
+     * 重新启用id范围内因聊天限制被禁用、当月聊天次数在限制内的用户
+     *
+     * @param afterId      起始id（不含）
+     * @param upperId      结束id（含）
+     * @param maxChatCount 最大聊天次数
+     * @return 重新启用的用户数
+     */
+    int reEnableWithinChatLimit(@Param("afterId") Long afterId, @Param("upperId") Long upperId,
+            @Param("maxChatCount") Integer maxChatCount);
+
+    /**
+     * 用每日聊天汇总的当月合计更新id范围内用户的chat_count_month
+     *
+     * @param afterId 起始id（不含）
+     * @param upperId 结束id（含）
+     * @param month   当前月份 (yyyy-MM)
+     * @return 更新的行数
+     */
+    int syncChatCountMonth(@Param("afterId") Long afterId, @Param("upperId") Long upperId,
+            @Param("month") String month);
+
+    /**
+     * 用每日聊天汇总的当月合计更新指定用户的chat_count_month
+     *
+     * @param userIds 用户id
+     * @param month   当前月份 (yyyy-MM)
+     * @return 更新的行数
+     */
+    int syncChatCountMonthOfUsers(@Param("userIds") List<Long> userIds, @Param("month") String month);
+
+}
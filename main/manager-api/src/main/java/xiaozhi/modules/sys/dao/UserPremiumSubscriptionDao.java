@@ -7,6 +7,7 @@ import org.apache.ibatis.annotations.Select;
 import xiaozhi.common.dao.BaseDao;
 import xiaozhi.modules.sys.entity.UserPremiumSubscriptionEntity;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -22,6 +23,15 @@ public interface UserPremiumSubscriptionDao extends BaseDao<UserPremiumSubscript
             "AND subscription_start_date <= NOW() AND subscription_end_date >= NOW() " +
             "ORDER BY subscription_end_date DESC LIMIT 1")
     UserPremiumSubscriptionEntity getActiveSubscriptionByUserId(@Param("userId") Long userId);
+
+    /**
+     * 在指定用户中获取有活跃订阅的用户ID
+     */
+    @Select("<script>SELECT DISTINCT user_id FROM user_premium_subscription WHERE status = 'ACTIVE' " +
+            "AND subscription_start_date &lt;= NOW() AND subscription_end_date &gt;= NOW() AND user_id IN " +
+            "<foreach collection='userIds' item='userId' open='(' separator=',' close=')'>#{userId}</foreach>" +
+            "</script>")
+    List<Long> getActiveSubscriptionUserIds(@Param("userIds") Collection<Long> userIds);
     
     /**
      * 根据用户ID获取所有订阅记录（按时间倒序）
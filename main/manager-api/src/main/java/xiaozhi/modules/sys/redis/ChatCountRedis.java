@@ -0,0 +1,83 @@
+package xiaozhi.modules.sys.redis;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.stereotype.Component;
+
+import lombok.AllArgsConstructor;
+import xiaozhi.common.redis.RedisKeys;
+import xiaozhi.common.redis.RedisUtils;
+
+/**
+ * 用户月度聊天次数计数器
+ * <p>
+ * 计数器按月份分Key，过期时间覆盖整月并留出回写余量；
+ * 发生变化的计数会记入待回写集合，由定时任务批量回写到sys_user表
+ */
+@AllArgsConstructor
+@Component
+public class ChatCountRedis {
+    /**
+     * 计数器过期时长为40天，单位：秒
+     */
+    private static final long COUNT_EXPIRE = 60 * 60 * 24 * 40L;
+
+    private final RedisUtils redisUtils;
+
+    public Long increment(String month, Long userId) {
+        return redisUtils.increment(RedisKeys.getUserChatCountKey(month, userId), COUNT_EXPIRE);
+    }
+
+    public Integer get(String month, Long userId) {
+        Object value = redisUtils.get(RedisKeys.getUserChatCountKey(month, userId));
+        return value == null ? null : Integer.valueOf(value.toString());
+    }
+
+    public void set(String month, Long userId, int count) {
+        redisUtils.set(RedisKeys.getUserChatCountKey(month, userId), count, COUNT_EXPIRE);
+    }
+
+    /**
+     * 计数器不存在时初始化
+     *
+     * @return 是否由本次调用完成初始化
+     */
+    public boolean initIfAbsent(String month, Long userId, int count) {
+        Boolean result = redisUtils.setIfAbsent(RedisKeys.getUserChatCountKey(month, userId), count, COUNT_EXPIRE);
+        return Boolean.TRUE.equals(result);
+    }
+
+    /**
+     * 标记计数器待回写，成员格式为 月份:用户ID
+     */
+    public void markDirty(String month, Long userId) {
+        redisUtils.sAdd(RedisKeys.getChatCountDirtyKey(), month + ":" + userId);
+    }
+
+    public long dirtySize() {
+        Long size = redisUtils.sSize(RedisKeys.getChatCountDirtyKey());
+        return size == null ? 0 : size;
+    }
+
+    public List<Object> popDirty(long count) {
+        List<Object> members = redisUtils.sPop(RedisKeys.getChatCountDirtyKey(), count);
+        return members == null ? Collections.emptyList() : members;
+    }
+
+    /**
+     * 当月同步到数据库已完成的最后一个用户ID，没有未完成的同步时返回null
+     */
+    public Long getSyncCheckpoint(String month) {
+        Object value = redisUtils.get(RedisKeys.getChatCountSyncCheckpointKey(month));
+        return value == null ? null : Long.valueOf(value.toString());
+    }
+
+    public void setSyncCheckpoint(String month, Long userId) {
+        redisUtils.set(RedisKeys.getChatCountSyncCheckpointKey(month), userId, COUNT_EXPIRE);
+    }
+
+    public void clearSyncCheckpoint(String month) {
+        redisUtils.delete(RedisKeys.getChatCountSyncCheckpointKey(month));
+    }
+}
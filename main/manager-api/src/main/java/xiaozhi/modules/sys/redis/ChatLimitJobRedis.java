@@ -0,0 +1,50 @@
+package xiaozhi.modules.sys.redis;
+
+import org.springframework.stereotype.Component;
+
+import lombok.AllArgsConstructor;
+import xiaozhi.common.redis.RedisKeys;
+import xiaozhi.common.redis.RedisUtils;
+import xiaozhi.modules.sys.vo.ChatLimitJobVO;
+
+/**
+ * 聊天次数限制调整任务状态
+ * <p>
+ * 最近一次任务的状态和取消请求存放在Redis中，任意节点都可以查询进度和取消任务，
+ * 节点重启后也能从记录的最后一个用户ID继续
+ */
+@AllArgsConstructor
+@Component
+public class ChatLimitJobRedis {
+    /**
+     * 任务状态保留7天，单位：秒
+     */
+    private static final long JOB_EXPIRE = 60 * 60 * 24 * 7L;
+    /**
+     * 取消请求保留1天，单位：秒
+     */
+    private static final long CANCEL_EXPIRE = 60 * 60 * 24L;
+
+    private final RedisUtils redisUtils;
+
+    /**
+     * 最近一次任务的状态，不存在时返回null
+     */
+    public ChatLimitJobVO get() {
+        Object value = redisUtils.get(RedisKeys.getChatLimitJobKey());
+        return value instanceof ChatLimitJobVO job ? job : null;
+    }
+
+    public void save(ChatLimitJobVO job) {
+        redisUtils.set(RedisKeys.getChatLimitJobKey(), job, JOB_EXPIRE);
+    }
+
+    public void requestCancel(String jobId) {
+        redisUtils.set(RedisKeys.getChatLimitCancelKey(), jobId, CANCEL_EXPIRE);
+    }
+
+    public boolean isCancelRequested(String jobId) {
+        Object value = redisUtils.get(RedisKeys.getChatLimitCancelKey());
+        return value != null && jobId.equals(value.toString());
+    }
+}
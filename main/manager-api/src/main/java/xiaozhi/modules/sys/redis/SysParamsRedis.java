@@ -1,22 +1,26 @@
 package xiaozhi.modules.sys.redis;
 
+import java.util.function.Supplier;
+
 import org.springframework.stereotype.Component;
 
 import lombok.AllArgsConstructor;
 import xiaozhi.common.redis.RedisKeys;
-import xiaozhi.common.redis.RedisUtils;
+import xiaozhi.common.redis.RedisNearCache;
 
 /**
  * 参数管理
+ * <p>
+ * 经本地近端缓存读取，写入和删除会通知所有节点
  */
 @AllArgsConstructor
 @Component
 public class SysParamsRedis {
-    private final RedisUtils redisUtils;
+    private final RedisNearCache redisNearCache;
 
     public void delete(Object[] paramCodes) {
         String key = RedisKeys.getSysParamsKey();
-        redisUtils.hDel(key, paramCodes);
+        redisNearCache.hDel(key, paramCodes);
     }
 
     public void set(String paramCode, String paramValue) {
@@ -24,12 +28,20 @@ public class SysParamsRedis {
             return;
         }
         String key = RedisKeys.getSysParamsKey();
-        redisUtils.hSet(key, paramCode, paramValue);
+        redisNearCache.hSet(key, paramCode, paramValue);
     }
 
     public String get(String paramCode) {
         String key = RedisKeys.getSysParamsKey();
-        return (String) redisUtils.hGet(key, paramCode);
+        return (String) redisNearCache.hGet(key, paramCode);
+    }
+
+    /**
+     * 读取参数，未命中时从数据库加载并回填，并发的未命中合并为一次加载
+     */
+    public String getOrLoad(String paramCode, Supplier<String> dbLoader) {
+        String key = RedisKeys.getSysParamsKey();
+        return redisNearCache.hGetOrLoad(key, paramCode, dbLoader);
     }
 
 }
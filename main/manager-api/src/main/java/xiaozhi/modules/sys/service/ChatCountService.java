@@ -0,0 +1,51 @@
+package xiaozhi.modules.sys.service;
+
+import java.util.Map;
+
+/**
+ * 用户月度聊天次数计数
+ * <p>
+ * 聊天上报时在Redis中原子自增，用于实时判断聊天次数限制，并定期从聊天记录表重建以纠正偏差；
+ * sys_user.chat_count_month只从每日聊天汇总写入，定时回写和全量同步使用同一数据来源
+ */
+public interface ChatCountService {
+
+    /**
+     * 记录一次聊天
+     *
+     * @param userId 用户id
+     * @return 用户当月聊天次数
+     */
+    int increment(Long userId);
+
+    /**
+     * 获取用户当月聊天次数
+     *
+     * @param userId 用户id
+     * @return 当月聊天次数
+     */
+    int getCurrentMonthCount(Long userId);
+
+    /**
+     * 将计数有变化的用户按每日聊天汇总回写到sys_user表
+     *
+     * @return 回写的用户数
+     */
+    int flushToDatabase();
+
+    /**
+     * 从聊天记录表重建当月计数
+     *
+     * @return 重建的用户数
+     */
+    int rebuildFromHistory();
+
+    /**
+     * 按用户ID分批，从每日聊天汇总同步所有用户的当月聊天次数到sys_user表，每批一条语句、单独提交；
+     * 中断后再次调用从上次完成的批次继续
+     *
+     * @param restart 是否忽略断点从头开始
+     * @return 同步统计：处理用户数、更新行数、批次数、耗时和吞吐量
+     */
+    Map<String, Object> syncToDatabase(boolean restart);
+}
@@ -0,0 +1,42 @@
+package xiaozhi.modules.sys.service;
+
+import xiaozhi.modules.sys.vo.ChatLimitJobVO;
+
+/**
+ * 聊天次数限制调整
+ * <p>
+ * max_chat_count变更后，在后台按用户id分批禁用超出新限制的账户或重新启用符合新限制的账户，
+ * 每批一个短事务，调用方立即返回；同一时间只运行一个任务，新任务会取消正在运行的旧任务
+ */
+public interface ChatLimitService {
+
+    /**
+     * 启动任务，重新启用因聊天限制被禁用、当月聊天次数在新限制内的账户
+     *
+     * @param newMaxChatCount 新的最大聊天次数限制
+     * @return 任务状态
+     */
+    ChatLimitJobVO startReEnable(Integer newMaxChatCount);
+
+    /**
+     * 启动任务，禁用当月聊天次数超过新限制的账户
+     *
+     * @param newMaxChatCount 新的最大聊天次数限制
+     * @return 任务状态
+     */
+    ChatLimitJobVO startDisable(Integer newMaxChatCount);
+
+    /**
+     * 最近一次任务的状态
+     *
+     * @return 任务状态，没有任务时返回null
+     */
+    ChatLimitJobVO getCurrentJob();
+
+    /**
+     * 取消正在运行的任务，已处理的批次不回滚
+     *
+     * @return 是否有任务被取消
+     */
+    boolean cancel();
+}
@@ -1,6 +1,8 @@
 package xiaozhi.modules.sys.service;
 
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.function.Consumer;
 
 /**
@@ -16,4 +18,11 @@ public interface SysUserUtilService {
      * @param setter 赋值方法
      */
     void assignUsername( Long userId, Consumer<String> setter);
+
+    /**
+     * 批量获取用户名，缓存一次批量读取，未缓存的用户一次查库并回填缓存
+     * @param userIds 用户id，可包含null和重复值
+     * @return 用户id到用户名的映射，不存在的用户不在结果中
+     */
+    Map<Long, String> assignUsernames(Collection<Long> userIds);
 }
@@ -0,0 +1,197 @@
+package xiaozhi.modules.sys.service.impl;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.stereotype.Service;
+
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import xiaozhi.common.exception.RenException;
+import xiaozhi.modules.agent.service.impl.AgentChatHistoryBatchWriter;
+import xiaozhi.modules.sys.dao.SysUserDao;
+import xiaozhi.modules.sys.redis.ChatCountRedis;
+import xiaozhi.modules.sys.service.ChatCountService;
+import xiaozhi.modules.sys.vo.UserChatStatsVO;
+
+/**
+ * {@link ChatCountService} impl
+ */
+@Slf4j
+@Service
+@AllArgsConstructor
+public class ChatCountServiceImpl implements ChatCountService {
+    /**
+     * 每批从待回写集合中取出的数量
+     */
+    private static final int FLUSH_BATCH_SIZE = 500;
+    /**
+     * 同步到数据库时每批处理的用户数
+     */
+    private static final int SYNC_BATCH_SIZE = 1000;
+
+    private static final DateTimeFormatter MONTH_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM");
+
+    private final ChatCountRedis chatCountRedis;
+    private final SysUserDao sysUserDao;
+    private final AgentChatHistoryBatchWriter chatHistoryBatchWriter;
+    private final AtomicBoolean syncing = new AtomicBoolean();
+
+    @Override
+    public int increment(Long userId) {
+        String month = currentMonth();
+        // 计数器不存在时用聊天记录表的准确值初始化，本条记录已写入或已入队，因此初始化后无需再自增
+        if (chatCountRedis.get(month, userId) == null) {
+            int actual = countActual(userId);
+            if (chatCountRedis.initIfAbsent(month, userId, actual)) {
+                chatCountRedis.markDirty(month, userId);
+                return actual;
+            }
+            // 并发的首次上报已完成初始化，其初始值同样来自聊天记录表，已包含本条记录，不再自增
+            Integer seeded = chatCountRedis.get(month, userId);
+            if (seeded != null) {
+                return seeded;
+            }
+        }
+        Long count = chatCountRedis.increment(month, userId);
+        if (count == null) {
+            // 未开启Redis时直接以数据库为准
+            return countActual(userId);
+        }
+        chatCountRedis.markDirty(month, userId);
+        return count.intValue();
+    }
+
+    @Override
+    public int getCurrentMonthCount(Long userId) {
+        String month = currentMonth();
+        Integer count = chatCountRedis.get(month, userId);
+        if (count != null) {
+            return count;
+        }
+        int actual = countActual(userId);
+        chatCountRedis.initIfAbsent(month, userId, actual);
+        return actual;
+    }
+
+    @Override
+    public int flushToDatabase() {
+        String month = currentMonth();
+        // 只处理本轮开始时已存在的成员，避免持续写入时回写无法结束
+        long pending = chatCountRedis.dirtySize();
+        int flushed = 0;
+        while (pending > 0) {
+            List<Object> members = chatCountRedis.popDirty(Math.min(pending, FLUSH_BATCH_SIZE));
+            if (members.isEmpty()) {
+                break;
+            }
+            pending -= members.size();
+            List<Long> userIds = new ArrayList<>(members.size());
+            for (Object member : members) {
+                String[] parts = member.toString().split(":");
+                // 上月的计数已由月初重置处理，无需回写
+                if (parts.length == 2 && month.equals(parts[0])) {
+                    userIds.add(Long.valueOf(parts[1]));
+                }
+            }
+            if (userIds.isEmpty()) {
+                continue;
+            }
+            // 与全量同步一样以每日汇总为准，避免两个来源互相覆盖
+            try {
+                flushed += sysUserDao.syncChatCountMonthOfUsers(userIds, month);
+            } catch (Exception e) {
+                log.error("=== CHAT COUNT FLUSH === Failed to flush chat counts for {} users", userIds.size(), e);
+                for (Long userId : userIds) {
+                    chatCountRedis.markDirty(month, userId);
+                }
+            }
+        }
+        return flushed;
+    }
+
+    @Override
+    public int rebuildFromHistory() {
+        String month = currentMonth();
+        List<UserChatStatsVO> stats = sysUserDao.getCurrentMonthChatCounts();
+        for (UserChatStatsVO stat : stats) {
+            chatCountRedis.set(month, stat.getUserId(), stat.getCurrentMonthCount());
+            chatCountRedis.markDirty(month, stat.getUserId());
+        }
+        return stats.size();
+    }
+
+    @Override
+    public Map<String, Object> syncToDatabase(boolean restart) {
+        if (!syncing.compareAndSet(false, true)) {
+            throw new RenException("Chat count synchronization is already running");
+        }
+        try {
+            return doSync(restart);
+        } finally {
+            syncing.set(false);
+        }
+    }
+
+    private Map<String, Object> doSync(boolean restart) {
+        String month = currentMonth();
+        Long checkpoint = restart ? null : chatCountRedis.getSyncCheckpoint(month);
+        long afterId = checkpoint == null ? 0 : checkpoint;
+        log.info("=== CHAT COUNT SYNC === Starting synchronization for {} from user {}", month, afterId);
+
+        long start = System.nanoTime();
+        long users = 0;
+        long updated = 0;
+        int batches = 0;
+        while (true) {
+            List<Long> batch = sysUserDao.getUserIdsAfter(afterId, SYNC_BATCH_SIZE);
+            if (batch.isEmpty()) {
+                break;
+            }
+            long upperId = batch.get(batch.size() - 1);
+            updated += sysUserDao.syncChatCountMonth(afterId, upperId, month);
+            users += batch.size();
+            batches++;
+            afterId = upperId;
+            // 每批提交后记录断点，中断后从下一批继续
+            chatCountRedis.setSyncCheckpoint(month, afterId);
+            if (batches % 50 == 0) {
+                log.info("=== CHAT COUNT SYNC === Synchronized {} users up to user {}", users, afterId);
+            }
+        }
+        chatCountRedis.clearSyncCheckpoint(month);
+
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("month", month);
+        stats.put("resumedFrom", checkpoint);
+        stats.put("users", users);
+        stats.put("updated", updated);
+        stats.put("batches", batches);
+        stats.put("elapsedMs", elapsedMs);
+        stats.put("usersPerSecond", elapsedMs == 0 ? users : users * 1000 / elapsedMs);
+        log.info("=== CHAT COUNT SYNC === Completed {}", stats);
+        return stats;
+    }
+
+    /**
+     * 当月聊天次数的准确值：已写入聊天记录表的数量加上批量写入队列中尚未写入的数量
+     */
+    private int countActual(Long userId) {
+        return chatHistoryBatchWriter.countWithPending(userId, () -> countFromHistory(userId));
+    }
+
+    private int countFromHistory(Long userId) {
+        Integer count = sysUserDao.getUserCurrentMonthChatCount(userId);
+        return count == null ? 0 : count;
+    }
+
+    private String currentMonth() {
+        return LocalDate.now().format(MONTH_FORMATTER);
+    }
+}
@@ -1,5 +1,6 @@
 package xiaozhi.modules.sys.service.impl;
 
+import java.time.LocalDate;
 import java.util.List;
 
 import org.springframework.scheduling.annotation.Scheduled;
@@ -11,8 +12,10 @@ import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
 
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import xiaozhi.modules.agent.service.ChatDailyRollupService;
 import xiaozhi.modules.sys.dao.SysUserDao;
 import xiaozhi.modules.sys.entity.SysUserEntity;
+import xiaozhi.modules.sys.service.ChatCountService;
 import xiaozhi.modules.sys.service.SysUserService;
 import xiaozhi.modules.sys.service.UserPremiumSubscriptionService;
 
@@ -27,6 +30,8 @@ public class ChatLimitScheduledService {
     private final SysUserService sysUserService;
     private final SysUserDao sysUserDao;
     private final UserPremiumSubscriptionService premiumSubscriptionService;
+    private final ChatCountService chatCountService;
+    private final ChatDailyRollupService chatDailyRollupService;
 
     /**
      * 每月第一天凌晨2点重新启用因聊天次数限制被禁用的账户
@@ -95,4 +100,48 @@ public class ChatLimitScheduledService {
             log.error("=== PREMIUM CHECK === Error during premium subscription check", e);
         }
     }
+
+    /**
+     * 每分钟将Redis中有变化的聊天计数回写到sys_user表
+     */
+    @Scheduled(fixedDelay = 60 * 1000L, initialDelay = 60 * 1000L)
+    public void flushChatCounts() {
+        try {
+            int flushed = chatCountService.flushToDatabase();
+            if (flushed > 0) {
+                log.debug("=== CHAT COUNT FLUSH === Flushed {} user chat counts to database", flushed);
+            }
+        } catch (Exception e) {
+            log.error("=== CHAT COUNT FLUSH === Error flushing chat counts to database", e);
+        }
+    }
+
+    /**
+     * 每天凌晨4点从聊天记录表重建当月聊天计数，纠正因回滚、解绑设备等造成的偏差
+     */
+    @Scheduled(cron = "0 0 4 * * ?")
+    public void rebuildChatCounts() {
+        log.info("=== CHAT COUNT REBUILD === Starting daily rebuild of chat counters");
+        try {
+            int rebuilt = chatCountService.rebuildFromHistory();
+            log.info("=== CHAT COUNT REBUILD === Rebuilt chat counters for {} users", rebuilt);
+        } catch (Exception e) {
+            log.error("=== CHAT COUNT REBUILD === Error rebuilding chat counters", e);
+        }
+    }
+
+    /**
+     * 每天凌晨4点半从聊天记录表重建前一天的每日聊天汇总，纠正因回滚、上报失败等造成的偏差
+     */
+    @Scheduled(cron = "0 30 4 * * ?")
+    public void rebuildChatDailyRollup() {
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        log.info("=== CHAT ROLLUP REBUILD === Starting rebuild of chat daily rollup for {}", yesterday);
+        try {
+            int rows = chatDailyRollupService.rebuild(yesterday, yesterday);
+            log.info("=== CHAT ROLLUP REBUILD === Rebuilt {} rollup rows for {}", rows, yesterday);
+        } catch (Exception e) {
+            log.error("=== CHAT ROLLUP REBUILD === Error rebuilding chat daily rollup", e);
+        }
+    }
 }
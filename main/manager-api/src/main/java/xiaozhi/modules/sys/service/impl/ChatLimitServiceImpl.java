@@ -0,0 +1,336 @@
+package xiaozhi.modules.sys.service.impl;
+
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import xiaozhi.common.exception.RenException;
+import xiaozhi.modules.security.oauth2.Oauth2TokenCache;
+import xiaozhi.modules.sys.dao.SysUserDao;
+import xiaozhi.modules.sys.event.MaxChatCountUpdatedEvent;
+import xiaozhi.modules.sys.redis.ChatLimitJobRedis;
+import xiaozhi.modules.sys.service.ChatLimitService;
+import xiaozhi.modules.sys.vo.ChatLimitJobVO;
+
+/**
+ * {@link ChatLimitService} impl
+ * <p>
+ * 按用户id做游标分批，每批用一条UPDATE ... JOIN按每日聊天汇总比较当月聊天次数，不逐个加载和更新用户。
+ * 任务状态和最后处理的用户id在每批后写入Redis，任意节点可查询和取消；节点重启后以相同限制再次执行时从中断处继续
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ChatLimitServiceImpl implements ChatLimitService {
+    private enum Mode {
+        DISABLE, RE_ENABLE
+    }
+
+    private enum Status {
+        RUNNING, COMPLETED, CANCELLED, FAILED, INTERRUPTED
+    }
+
+    /**
+     * 运行中的任务超过该时长没有进度更新视为已中断，单位：毫秒
+     */
+    private static final long STALE_MS = 10 * 60 * 1000L;
+
+    private final SysUserDao sysUserDao;
+    private final Oauth2TokenCache oauth2TokenCache;
+    private final TransactionTemplate transactionTemplate;
+    private final ChatLimitJobRedis chatLimitJobRedis;
+
+    /**
+     * 每批处理的用户数
+     */
+    @Value("${renren.chat-limit.batch-size:1000}")
+    private int batchSize;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "ChatLimitEnforcement");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 本节点最近启动的任务，任务状态以Redis中的为准
+     */
+    private volatile Job currentJob;
+    private volatile boolean shuttingDown;
+
+    /**
+     * max_chat_count变更提交后启动任务，不占用参数修改的事务
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMaxChatCountUpdated(MaxChatCountUpdatedEvent event) {
+        Integer oldValue = event.getOldValue();
+        Integer newValue = event.getNewValue();
+        log.info("=== CHAT LIMIT EVENT === Received MAX_CHAT_COUNT update event: {} -> {}", oldValue, newValue);
+        if (oldValue == null || newValue == null || oldValue.equals(newValue)) {
+            log.debug("=== CHAT LIMIT EVENT === Missing or unchanged value, no action taken");
+            return;
+        }
+        if (newValue > oldValue) {
+            startReEnable(newValue);
+        } else {
+            startDisable(newValue);
+        }
+    }
+
+    @Override
+    public ChatLimitJobVO startReEnable(Integer newMaxChatCount) {
+        return start(Mode.RE_ENABLE, newMaxChatCount);
+    }
+
+    @Override
+    public ChatLimitJobVO startDisable(Integer newMaxChatCount) {
+        return start(Mode.DISABLE, newMaxChatCount);
+    }
+
+    @Override
+    public ChatLimitJobVO getCurrentJob() {
+        ChatLimitJobVO job = chatLimitJobRedis.get();
+        if (job == null) {
+            // Redis中没有记录时返回本节点的任务
+            Job local = currentJob;
+            return local == null ? null : local.toVO();
+        }
+        if (isInterrupted(job)) {
+            job.setStatus(Status.INTERRUPTED.name());
+        }
+        return job;
+    }
+
+    @Override
+    public boolean cancel() {
+        boolean cancelled = false;
+        Job local = currentJob;
+        ChatLimitJobVO job = chatLimitJobRedis.get();
+        if (job != null && isInterrupted(job)) {
+            // 已中断的任务没有节点在运行，直接标记为已取消，之后不再续跑
+            job.setStatus(Status.CANCELLED.name());
+            job.setFinishedAt(new Date());
+            chatLimitJobRedis.save(job);
+            cancelled = true;
+        } else if (job != null && Status.RUNNING.name().equals(job.getStatus())) {
+            // 由运行任务的节点在批次之间检查取消请求
+            chatLimitJobRedis.requestCancel(job.getJobId());
+            cancelled = true;
+        }
+        if (local != null && local.status == Status.RUNNING && (job == null || local.id.equals(job.getJobId()))) {
+            local.cancelled = true;
+            cancelled = true;
+        }
+        return cancelled;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        shuttingDown = true;
+        executor.shutdownNow();
+    }
+
+    private synchronized ChatLimitJobVO start(Mode mode, Integer maxChatCount) {
+        if (maxChatCount == null || maxChatCount < 0) {
+            throw new RenException("Invalid max chat count: " + maxChatCount);
+        }
+        // 新的限制覆盖旧的限制，旧任务在当前批次结束后停止
+        Job previous = currentJob;
+        if (previous != null && previous.status == Status.RUNNING) {
+            previous.cancelled = true;
+        }
+        ChatLimitJobVO stored = chatLimitJobRedis.get();
+        Job job;
+        if (stored != null && isInterrupted(stored) && mode.name().equals(stored.getMode())
+                && maxChatCount.equals(stored.getMaxChatCount())) {
+            // 相同的限制再次执行时，从中断任务记录的最后一个用户继续
+            job = new Job(stored);
+            log.info("=== CHAT LIMIT JOB === Resuming interrupted job {} {} after user {}", job.id, mode,
+                    job.lastUserId);
+        } else {
+            job = new Job(mode, maxChatCount);
+        }
+        currentJob = job;
+        // 其他节点上运行的旧任务发现状态已被替换后停止
+        job.updatedAt = new Date();
+        chatLimitJobRedis.save(job.toVO());
+        executor.execute(() -> run(job));
+        log.info("=== CHAT LIMIT JOB === Submitted job {} {} with limit {}", job.id, mode, maxChatCount);
+        return job.toVO();
+    }
+
+    private void run(Job job) {
+        try {
+            long afterId = job.lastUserId == null ? 0 : job.lastUserId;
+            while (!shouldStop(job)) {
+                List<Long> batch = sysUserDao.getUserIdsAfter(afterId, batchSize);
+                if (batch.isEmpty()) {
+                    break;
+                }
+                long from = afterId;
+                long upperId = batch.get(batch.size() - 1);
+                int affected = job.mode == Mode.DISABLE
+                        ? disableBatch(from, upperId, job.maxChatCount)
+                        : transactionTemplate.execute(
+                                status -> sysUserDao.reEnableWithinChatLimit(from, upperId, job.maxChatCount));
+                job.scanned.addAndGet(batch.size());
+                job.affected.addAndGet(affected);
+                job.lastUserId = upperId;
+                afterId = upperId;
+                saveProgress(job);
+            }
+            if (job.superseded) {
+                job.finish(Status.CANCELLED, null);
+                log.info("=== CHAT LIMIT JOB === Job {} {} superseded by a newer job after user {}", job.id, job.mode,
+                        job.lastUserId);
+                return;
+            }
+            Status status = shuttingDown ? Status.INTERRUPTED
+                    : job.cancelled ? Status.CANCELLED : Status.COMPLETED;
+            job.finish(status, null);
+            saveProgress(job);
+            log.info("=== CHAT LIMIT JOB === Job {} {} {}: {} of {} users affected", job.id, job.mode, job.status,
+                    job.affected.get(), job.scanned.get());
+        } catch (Exception e) {
+            job.finish(Status.FAILED, e.getMessage());
+            try {
+                saveProgress(job);
+            } catch (Exception saveError) {
+                log.warn("=== CHAT LIMIT JOB === Failed to save state of job {}", job.id, saveError);
+            }
+            log.error("=== CHAT LIMIT JOB === Job {} {} failed after user {}", job.id, job.mode, job.lastUserId, e);
+        }
+    }
+
+    /**
+     * 每批开始前检查：本节点关闭、本节点或其他节点请求取消、已被其他节点的新任务替换时停止
+     */
+    private boolean shouldStop(Job job) {
+        if (shuttingDown || job.cancelled) {
+            return true;
+        }
+        if (chatLimitJobRedis.isCancelRequested(job.id)) {
+            job.cancelled = true;
+            return true;
+        }
+        ChatLimitJobVO stored = chatLimitJobRedis.get();
+        if (stored != null && !job.id.equals(stored.getJobId())) {
+            job.superseded = true;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 写入任务进度，已被新任务替换时不再写入，避免覆盖新任务的状态
+     */
+    private void saveProgress(Job job) {
+        ChatLimitJobVO stored = chatLimitJobRedis.get();
+        if (stored != null && !job.id.equals(stored.getJobId())) {
+            job.superseded = true;
+            return;
+        }
+        job.updatedAt = new Date();
+        chatLimitJobRedis.save(job.toVO());
+    }
+
+    /**
+     * 任务已中断：运行节点关闭时记录为中断，或节点异常退出后长时间没有进度更新
+     */
+    private boolean isInterrupted(ChatLimitJobVO job) {
+        if (Status.INTERRUPTED.name().equals(job.getStatus())) {
+            return true;
+        }
+        if (!Status.RUNNING.name().equals(job.getStatus())) {
+            return false;
+        }
+        Job local = currentJob;
+        if (local != null && local.status == Status.RUNNING && local.id.equals(job.getJobId())) {
+            return false;
+        }
+        Date updatedAt = job.getUpdatedAt();
+        return updatedAt == null || System.currentTimeMillis() - updatedAt.getTime() > STALE_MS;
+    }
+
+    private int disableBatch(long afterId, long upperId, int maxChatCount) {
+        List<Long> userIds = sysUserDao.getUserIdsOverChatLimit(afterId, upperId, maxChatCount);
+        if (userIds.isEmpty()) {
+            return 0;
+        }
+        Integer disabled = transactionTemplate.execute(status -> sysUserDao.disableForChatLimit(userIds));
+        for (Long userId : userIds) {
+            oauth2TokenCache.revoke(userId);
+        }
+        log.info("=== CHAT LIMIT JOB === Disabled users {} (limit: {})", userIds, maxChatCount);
+        return disabled == null ? 0 : disabled;
+    }
+
+    private static class Job {
+        private final String id;
+        private final Mode mode;
+        private final int maxChatCount;
+        private final Date startedAt;
+        private final AtomicLong scanned = new AtomicLong();
+        private final AtomicLong affected = new AtomicLong();
+        private volatile Status status = Status.RUNNING;
+        private volatile boolean cancelled;
+        private volatile boolean superseded;
+        private volatile Long lastUserId;
+        private volatile Date updatedAt;
+        private volatile Date finishedAt;
+        private volatile String error;
+
+        private Job(Mode mode, int maxChatCount) {
+            this.id = UUID.randomUUID().toString();
+            this.mode = mode;
+            this.maxChatCount = maxChatCount;
+            this.startedAt = new Date();
+        }
+
+        /**
+         * 续跑中断的任务，沿用其id和进度
+         */
+        private Job(ChatLimitJobVO interrupted) {
+            this.id = interrupted.getJobId();
+            this.mode = Mode.valueOf(interrupted.getMode());
+            this.maxChatCount = interrupted.getMaxChatCount();
+            this.startedAt = interrupted.getStartedAt();
+            this.scanned.set(interrupted.getScannedUsers() == null ? 0 : interrupted.getScannedUsers());
+            this.affected.set(interrupted.getAffectedUsers() == null ? 0 : interrupted.getAffectedUsers());
+            this.lastUserId = interrupted.getLastUserId();
+        }
+
+        private void finish(Status status, String error) {
+            this.error = error;
+            this.finishedAt = new Date();
+            this.status = status;
+        }
+
+        private ChatLimitJobVO toVO() {
+            ChatLimitJobVO vo = new ChatLimitJobVO();
+            vo.setJobId(id);
+            vo.setMode(mode.name());
+            vo.setMaxChatCount(maxChatCount);
+            vo.setStatus(status.name());
+            vo.setScannedUsers(scanned.get());
+            vo.setAffectedUsers(affected.get());
+            vo.setLastUserId(lastUserId);
+            vo.setStartedAt(startedAt);
+            vo.setUpdatedAt(updatedAt);
+            vo.setFinishedAt(finishedAt);
+            vo.setError(error);
+            return vo;
+        }
+    }
+}
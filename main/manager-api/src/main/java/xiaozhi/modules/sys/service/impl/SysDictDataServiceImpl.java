@@ -19,15 +19,14 @@ import lombok.AllArgsConstructor;
 import xiaozhi.common.exception.RenException;
 import xiaozhi.common.page.PageData;
 import xiaozhi.common.redis.RedisKeys;
-import xiaozhi.common.redis.RedisUtils;
+import xiaozhi.common.redis.RedisNearCache;
 import xiaozhi.common.service.impl.BaseServiceImpl;
 import xiaozhi.common.utils.ConvertUtils;
 import xiaozhi.modules.sys.dao.SysDictDataDao;
-import xiaozhi.modules.sys.dao.SysUserDao;
 import xiaozhi.modules.sys.dto.SysDictDataDTO;
 import xiaozhi.modules.sys.entity.SysDictDataEntity;
-import xiaozhi.modules.sys.entity.SysUserEntity;
 import xiaozhi.modules.sys.service.SysDictDataService;
+import xiaozhi.modules.sys.service.SysUserUtilService;
 import xiaozhi.modules.sys.vo.SysDictDataItem;
 import xiaozhi.modules.sys.vo.SysDictDataVO;
 
@@ -38,8 +37,8 @@ import xiaozhi.modules.sys.vo.SysDictDataVO;
 @AllArgsConstructor
 public class SysDictDataServiceImpl extends BaseServiceImpl<SysDictDataDao, SysDictDataEntity>
         implements SysDictDataService {
-    private final SysUserDao sysUserDao;
-    private final RedisUtils redisUtils;
+    private final SysUserUtilService sysUserUtilService;
+    private final RedisNearCache redisNearCache;
 
     @Override
     public PageData<SysDictDataVO> page(Map<String, Object> params) {
@@ -83,7 +82,7 @@ public class SysDictDataServiceImpl extends BaseServiceImpl<SysDictDataDao, SysD
         insert(entity);
         // 删除Redis缓存
         String dictType = baseDao.getTypeByTypeId(dto.getDictTypeId());
-        redisUtils.delete(RedisKeys.getDictDataByTypeKey(dictType));
+        redisNearCache.delete(RedisKeys.getDictDataByTypeKey(dictType));
     }
 
     @Override
@@ -97,7 +96,7 @@ public class SysDictDataServiceImpl extends BaseServiceImpl<SysDictDataDao, SysD
         updateById(entity);
         // 删除Redis缓存
         String dictType = baseDao.getTypeByTypeId(dto.getDictTypeId());
-        redisUtils.delete(RedisKeys.getDictDataByTypeKey(dictType));
+        redisNearCache.delete(RedisKeys.getDictDataByTypeKey(dictType));
     }
 
     @Override
@@ -107,7 +106,7 @@ public class SysDictDataServiceImpl extends BaseServiceImpl<SysDictDataDao, SysD
             SysDictDataEntity entity = baseDao.selectById(id);
             // 删除Redis缓存
             String dictType = baseDao.getTypeByTypeId(entity.getDictTypeId());
-            redisUtils.delete(RedisKeys.getDictDataByTypeKey(dictType));
+            redisNearCache.delete(RedisKeys.getDictDataByTypeKey(dictType));
             // 删除
             deleteById(id);
         }
@@ -133,10 +132,7 @@ public class SysDictDataServiceImpl extends BaseServiceImpl<SysDictDataDao, SysD
 
         // 设置更新者和创建者名称
         if (!userIds.isEmpty()) {
-            List<SysUserEntity> sysUserEntities = sysUserDao.selectBatchIds(userIds);
-            // 把List转成Map，Map<Long, String>
-            Map<Long, String> userNameMap = sysUserEntities.stream().collect(Collectors.toMap(SysUserEntity::getId,
-                    SysUserEntity::getUsername, (existing, replacement) -> existing));
+            Map<Long, String> userNameMap = sysUserUtilService.assignUsernames(userIds);
 
             sysDictDataList.forEach(vo -> {
                 vo.setCreatorName(userNameMap.get(vo.getCreator()));
@@ -163,21 +159,8 @@ public class SysDictDataServiceImpl extends BaseServiceImpl<SysDictDataDao, SysD
             return null;
         }
 
-        // 先从Redis获取缓存
+        // 先从缓存获取，没有则从数据库获取并存入缓存
         String key = RedisKeys.getDictDataByTypeKey(dictType);
-        List<SysDictDataItem> cachedData = (List<SysDictDataItem>) redisUtils.get(key);
-        if (cachedData != null) {
-            return cachedData;
-        }
-
-        // 如果缓存中没有，则从数据库获取
-        List<SysDictDataItem> data = baseDao.getDictDataByType(dictType);
-
-        // 存入Redis缓存
-        if (data != null) {
-            redisUtils.set(key, data);
-        }
-
-        return data;
+        return redisNearCache.getOrLoad(key, () -> baseDao.getDictDataByType(dictType));
     }
 }
\ No newline at end of file
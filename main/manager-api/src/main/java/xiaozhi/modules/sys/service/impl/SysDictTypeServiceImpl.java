@@ -22,12 +22,11 @@ import xiaozhi.common.page.PageData;
 import xiaozhi.common.service.impl.BaseServiceImpl;
 import xiaozhi.common.utils.ConvertUtils;
 import xiaozhi.modules.sys.dao.SysDictTypeDao;
-import xiaozhi.modules.sys.dao.SysUserDao;
 import xiaozhi.modules.sys.dto.SysDictTypeDTO;
 import xiaozhi.modules.sys.entity.SysDictTypeEntity;
-import xiaozhi.modules.sys.entity.SysUserEntity;
 import xiaozhi.modules.sys.service.SysDictDataService;
 import xiaozhi.modules.sys.service.SysDictTypeService;
+import xiaozhi.modules.sys.service.SysUserUtilService;
 import xiaozhi.modules.sys.vo.SysDictTypeVO;
 
 /**
@@ -37,7 +36,7 @@ import xiaozhi.modules.sys.vo.SysDictTypeVO;
 @AllArgsConstructor
 public class SysDictTypeServiceImpl extends BaseServiceImpl<SysDictTypeDao, SysDictTypeEntity>
         implements SysDictTypeService {
-    private final SysUserDao sysUserDao;
+    private final SysUserUtilService sysUserUtilService;
     private final SysDictDataService sysDictDataService;
 
     @Override
@@ -127,10 +126,7 @@ public class SysDictTypeServiceImpl extends BaseServiceImpl<SysDictTypeDao, SysD
 
         // 设置更新者和创建者名称
         if (!userIds.isEmpty()) {
-            List<SysUserEntity> sysUserEntities = sysUserDao.selectBatchIds(userIds);
-            // 把List转成Map，Map<Long, String>
-            Map<Long, String> userNameMap = sysUserEntities.stream().collect(Collectors.toMap(SysUserEntity::getId,
-                    SysUserEntity::getUsername, (existing, replacement) -> existing));
+            Map<Long, String> userNameMap = sysUserUtilService.assignUsernames(userIds);
 
             sysDictTypeList.forEach(vo -> {
                 vo.setCreatorName(userNameMap.get(vo.getCreator()));
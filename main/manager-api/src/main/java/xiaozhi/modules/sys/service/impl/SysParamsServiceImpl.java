@@ -24,6 +24,7 @@ import xiaozhi.common.page.PageData;
 import xiaozhi.common.service.impl.BaseServiceImpl;
 import xiaozhi.common.utils.ConvertUtils;
 import xiaozhi.common.utils.JsonUtils;
+import xiaozhi.modules.config.cache.AgentConfigSnapshotCache;
 import xiaozhi.modules.sys.dao.SysParamsDao;
 import xiaozhi.modules.sys.dto.SysParamsDTO;
 import xiaozhi.modules.sys.entity.SysParamsEntity;
@@ -41,6 +42,7 @@ public class SysParamsServiceImpl extends BaseServiceImpl<SysParamsDao, SysParam
     
     private final SysParamsRedis sysParamsRedis;
     private final ApplicationEventPublisher eventPublisher;
+    private final AgentConfigSnapshotCache agentConfigSnapshotCache;
 
     @Override
     public PageData<SysParamsDTO> page(Map<String, Object> params) {
@@ -86,6 +88,7 @@ public class SysParamsServiceImpl extends BaseServiceImpl<SysParamsDao, SysParam
         insert(entity);
 
         sysParamsRedis.set(entity.getParamCode(), entity.getParamValue());
+        evictAgentSnapshotsIfNeeded(entity.getParamCode());
     }
 
     @Override
@@ -103,6 +106,16 @@ public class SysParamsServiceImpl extends BaseServiceImpl<SysParamsDao, SysParam
         updateById(entity);
 
         sysParamsRedis.set(entity.getParamCode(), entity.getParamValue());
+        evictAgentSnapshotsIfNeeded(entity.getParamCode());
+    }
+
+    /**
+     * 智能体配置快照中包含的参数变更时，失效所有快照
+     */
+    private void evictAgentSnapshotsIfNeeded(String... paramCodes) {
+        if (Arrays.asList(paramCodes).contains(Constant.DEVICE_MAX_OUTPUT_SIZE)) {
+            agentConfigSnapshotCache.evictAll();
+        }
     }
 
     /**
@@ -167,6 +180,7 @@ public class SysParamsServiceImpl extends BaseServiceImpl<SysParamsDao, SysParam
         String[] paramCodes = paramCodeList.toArray(new String[paramCodeList.size()]);
         if (paramCodes.length > 0) {
             sysParamsRedis.delete(paramCodes);
+            evictAgentSnapshotsIfNeeded(paramCodes);
         }
 
         // 删除
@@ -177,12 +191,7 @@ public class SysParamsServiceImpl extends BaseServiceImpl<SysParamsDao, SysParam
     public String getValue(String paramCode, Boolean fromCache) {
         String paramValue = null;
         if (fromCache) {
-            paramValue = sysParamsRedis.get(paramCode);
-            if (paramValue == null) {
-                paramValue = baseDao.getValueByCode(paramCode);
-
-                sysParamsRedis.set(paramCode, paramValue);
-            }
+            paramValue = sysParamsRedis.getOrLoad(paramCode, () -> baseDao.getValueByCode(paramCode));
         } else {
             paramValue = baseDao.getValueByCode(paramCode);
         }
@@ -213,6 +222,7 @@ public class SysParamsServiceImpl extends BaseServiceImpl<SysParamsDao, SysParam
         
         int count = baseDao.updateValueByCode(paramCode, paramValue);
         sysParamsRedis.set(paramCode, paramValue);
+        evictAgentSnapshotsIfNeeded(paramCode);
         return count;
     }
 
@@ -265,7 +275,7 @@ public class SysParamsServiceImpl extends BaseServiceImpl<SysParamsDao, SysParam
 
     /**
      * 处理max_chat_count参数更新
-     * 当参数值增加时，重新启用符合新限制的被禁用账户
+     * 发布变更事件，参数修改提交后由后台任务禁用超出新限制或重新启用符合新限制的账户
      */
     private void handleMaxChatCountUpdate(String newParamValue) {
         try {
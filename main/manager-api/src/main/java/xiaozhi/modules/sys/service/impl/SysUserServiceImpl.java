@@ -1,16 +1,17 @@
 package xiaozhi.modules.sys.service.impl;
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -26,6 +27,7 @@ import xiaozhi.common.service.impl.BaseServiceImpl;
 import xiaozhi.common.utils.ConvertUtils;
 import xiaozhi.modules.agent.service.AgentService;
 import xiaozhi.modules.device.service.DeviceService;
+import xiaozhi.modules.security.oauth2.Oauth2TokenCache;
 import xiaozhi.modules.security.password.PasswordUtils;
 import xiaozhi.modules.sys.dao.SysUserDao;
 import xiaozhi.modules.sys.dto.AdminPageUserDTO;
@@ -33,7 +35,6 @@ import xiaozhi.modules.sys.dto.PasswordDTO;
 import xiaozhi.modules.sys.dto.SysUserDTO;
 import xiaozhi.modules.sys.entity.SysUserEntity;
 import xiaozhi.modules.sys.enums.SuperAdminEnum;
-import xiaozhi.modules.sys.event.MaxChatCountUpdatedEvent;
 import xiaozhi.modules.sys.service.SysParamsService;
 import xiaozhi.modules.sys.service.SysUserService;
 import xiaozhi.modules.sys.vo.AdminPageUserVO;
@@ -58,6 +59,8 @@ public class SysUserServiceImpl extends BaseServiceImpl<SysUserDao, SysUserEntit
 
     private final SysParamsService sysParamsService;
 
+    private final Oauth2TokenCache oauth2TokenCache;
+
     @Override
     public SysUserDTO getByUsername(String username) {
         QueryWrapper<SysUserEntity> queryWrapper = new QueryWrapper<>();
@@ -112,6 +115,8 @@ public class SysUserServiceImpl extends BaseServiceImpl<SysUserDao, SysUserEntit
         deviceService.deleteByUserId(id);
         // 删除智能体
         agentService.deleteAgentByUserId(id);
+        // 撤销已缓存的登录token
+        oauth2TokenCache.revoke(id);
     }
 
     @Override
@@ -175,18 +180,21 @@ public class SysUserServiceImpl extends BaseServiceImpl<SysUserDao, SysUserEntit
                 getPage(params, "id", true),
                 new QueryWrapper<SysUserEntity>().like(StringUtils.isNotBlank(dto.getMobile()), "username",
                         dto.getMobile()));
+        // 设备数量和高级订阅状态按本页用户批量查询，避免逐行查询
+        List<Long> userIds = page.getRecords().stream().map(SysUserEntity::getId).toList();
+        Map<Long, Long> deviceCounts = userIds.isEmpty() ? Map.of() : deviceService.selectCountByUserIds(userIds);
+        // Check premium status using DAO directly to avoid circular dependency
+        Set<Long> premiumUserIds = userIds.isEmpty() ? Set.of()
+                : new HashSet<>(premiumSubscriptionDao.getActiveSubscriptionUserIds(userIds));
         // 循环处理page获取回来的数据，返回需要的字段
         List<AdminPageUserVO> list = page.getRecords().stream().map(user -> {
             AdminPageUserVO adminPageUserVO = new AdminPageUserVO();
             adminPageUserVO.setUserid(user.getId().toString());
             adminPageUserVO.setMobile(user.getUsername());
-            String deviceCount = deviceService.selectCountByUserId(user.getId()).toString();
-            adminPageUserVO.setDeviceCount(deviceCount);
+            adminPageUserVO.setDeviceCount(deviceCounts.getOrDefault(user.getId(), 0L).toString());
             adminPageUserVO.setStatus(user.getStatus());
             adminPageUserVO.setCreateDate(user.getCreateDate());
-            // Check premium status using DAO directly to avoid circular dependency
-            boolean isPremium = premiumSubscriptionDao.getActiveSubscriptionByUserId(user.getId()) != null;
-            adminPageUserVO.setIsPremium(isPremium);
+            adminPageUserVO.setIsPremium(premiumUserIds.contains(user.getId()));
             return adminPageUserVO;
         }).toList();
         return new PageData<>(list, page.getTotal());
@@ -224,6 +232,7 @@ public class SysUserServiceImpl extends BaseServiceImpl<SysUserDao, SysUserEntit
             entity.setId(Long.parseLong(userId));
             entity.setStatus(status);
             updateById(entity);
+            oauth2TokenCache.revoke(entity.getId());
         }
     }
 
@@ -271,181 +280,4 @@ public class SysUserServiceImpl extends BaseServiceImpl<SysUserDao, SysUserEntit
             throw e;
         }
     }
-
-    @Override
-    public void checkAndReEnableAccountsForNewLimit(Integer newMaxChatCount) {
-        logger.info("=== CHAT LIMIT RE-ENABLE === Checking accounts for re-enablement with new limit: {}", newMaxChatCount);
-        
-        try {
-            // 找到所有因聊天限制而被自动禁用的账户
-            QueryWrapper<SysUserEntity> queryWrapper = new QueryWrapper<>();
-            queryWrapper.eq("status", 0) // 已禁用
-                    .eq("auto_disabled_reason", "MONTHLY_CHAT_LIMIT_EXCEEDED"); // 因聊天限制禁用
-            
-            List<SysUserEntity> disabledUsers = baseDao.selectList(queryWrapper);
-            logger.info("=== CHAT LIMIT RE-ENABLE === Found {} users disabled due to chat limit", disabledUsers.size());
-            
-            if (disabledUsers.isEmpty()) {
-                return;
-            }
-            
-            // 获取所有用户的当前聊天统计
-            List<UserChatStatsVO> allUserStats = getUserChatStats();
-            Map<Long, Integer> userCurrentChatCounts = new HashMap<>();
-            
-            for (UserChatStatsVO stat : allUserStats) {
-                userCurrentChatCounts.put(stat.getUserId(), stat.getCurrentMonthCount());
-            }
-            
-            // 检查每个被禁用的用户
-            int reEnabledCount = 0;
-            for (SysUserEntity user : disabledUsers) {
-                Integer currentChatCount = userCurrentChatCounts.getOrDefault(user.getId(), 0);
-                
-                if (currentChatCount <= newMaxChatCount) {
-                    // 当前聊天次数在新限制内，重新启用账户
-                    user.setStatus(1); // 1 = enabled
-                    user.setAutoDisabledReason(null); // 清除自动禁用原因
-                    baseDao.updateById(user);
-                    
-                    logger.info("=== CHAT LIMIT RE-ENABLE === Re-enabled user {} (current chats: {} <= new limit: {})", 
-                            user.getId(), currentChatCount, newMaxChatCount);
-                    reEnabledCount++;
-                } else {
-                    logger.debug("=== CHAT LIMIT RE-ENABLE === User {} still exceeds new limit (current chats: {} > new limit: {})", 
-                            user.getId(), currentChatCount, newMaxChatCount);
-                }
-            }
-            
-            logger.info("=== CHAT LIMIT RE-ENABLE === Re-enabled {} out of {} disabled users", reEnabledCount, disabledUsers.size());
-            
-        } catch (Exception e) {
-            logger.error("=== CHAT LIMIT RE-ENABLE === Error checking and re-enabling accounts for new limit", e);
-            throw e;
-        }
-    }
-
-    /**
-     * Check and disable accounts that exceed the new lower chat limit
-     */
-    @Override
-    @Transactional
-    public void checkAndDisableAccountsForLowerLimit(Integer newMaxChatCount) {
-        logger.info("=== CHAT LIMIT DISABLE === Checking accounts for disabling with lower limit: {}", newMaxChatCount);
-        
-        try {
-            // 找到所有当前启用的账户
-            QueryWrapper<SysUserEntity> queryWrapper = new QueryWrapper<>();
-            queryWrapper.eq("status", 1); // 1 = enabled
-            
-            List<SysUserEntity> enabledUsers = baseDao.selectList(queryWrapper);
-            logger.info("=== CHAT LIMIT DISABLE === Found {} enabled users to check", enabledUsers.size());
-            
-            if (enabledUsers.isEmpty()) {
-                return;
-            }
-            
-            // 获取所有用户的当前聊天统计
-            List<UserChatStatsVO> allUserStats = getUserChatStats();
-            Map<Long, Integer> userCurrentChatCounts = new HashMap<>();
-            
-            for (UserChatStatsVO stat : allUserStats) {
-                userCurrentChatCounts.put(stat.getUserId(), stat.getCurrentMonthCount());
-            }
-            
-            // 检查每个启用的用户
-            int disabledCount = 0;
-            for (SysUserEntity user : enabledUsers) {
-                Integer currentChatCount = userCurrentChatCounts.getOrDefault(user.getId(), 0);
-                
-                if (currentChatCount > newMaxChatCount) {
-                    // 当前聊天次数超过新限制，禁用账户
-                    user.setStatus(0); // 0 = disabled
-                    user.setAutoDisabledReason("MONTHLY_CHAT_LIMIT_EXCEEDED"); // 设置自动禁用原因
-                    baseDao.updateById(user);
-                    
-                    logger.info("=== CHAT LIMIT DISABLE === Disabled user {} (current chats: {} > new limit: {})", 
-                            user.getId(), currentChatCount, newMaxChatCount);
-                    disabledCount++;
-                } else {
-                    logger.debug("=== CHAT LIMIT DISABLE === User {} within new limit (current chats: {} <= new limit: {})", 
-                            user.getId(), currentChatCount, newMaxChatCount);
-                }
-            }
-            
-            logger.info("=== CHAT LIMIT DISABLE === Disabled {} out of {} enabled users due to lower limit", disabledCount, enabledUsers.size());
-            
-        } catch (Exception e) {
-            logger.error("=== CHAT LIMIT DISABLE === Error checking and disabling accounts for lower limit", e);
-            throw e;
-        }
-    }
-
-    @Override
-    @Transactional
-    public void syncChatCountToDatabase() {
-        logger.info("=== CHAT COUNT SYNC === Starting synchronization of chat counts to database");
-        
-        try {
-            // 获取所有用户的准确聊天统计数据（Manager Portal使用的数据源）
-            List<UserChatStatsVO> userChatStats = getUserChatStats();
-            logger.info("=== CHAT COUNT SYNC === Retrieved {} user chat statistics from reliable source", userChatStats.size());
-            
-            int updatedCount = 0;
-            String currentMonth = java.time.LocalDate.now().format(java.time.format.DateTimeFormatter.ofPattern("yyyy-MM"));
-            
-            for (UserChatStatsVO stat : userChatStats) {
-                Long userId = stat.getUserId();
-                Integer actualCurrentMonthCount = stat.getCurrentMonthCount();
-                
-                // 更新sys_user表中的chat_count_month字段
-                SysUserEntity user = baseDao.selectById(userId);
-                if (user != null) {
-                    Integer oldChatCount = user.getChatCountMonth();
-                    
-                    // 更新聊天次数和重置月份
-                    user.setChatCountMonth(actualCurrentMonthCount);
-                    user.setLastResetMonth(currentMonth);
-                    
-                    baseDao.updateById(user);
-                    updatedCount++;
-                    
-                    logger.debug("=== CHAT COUNT SYNC === Updated user {}: {} -> {} chats", 
-                            userId, oldChatCount, actualCurrentMonthCount);
-                } else {
-                    logger.warn("=== CHAT COUNT SYNC === User {} not found in sys_user table", userId);
-                }
-            }
-            
-            logger.info("=== CHAT COUNT SYNC === Successfully synchronized {} user chat counts to database", updatedCount);
-            
-        } catch (Exception e) {
-            logger.error("=== CHAT COUNT SYNC === Error synchronizing chat counts to database", e);
-            throw e;
-        }
-    }
-    
-    /**
-     * Event listener for MAX_CHAT_COUNT parameter updates
-     */
-    @EventListener
-    @Transactional
-    public void handleMaxChatCountUpdated(MaxChatCountUpdatedEvent event) {
-        logger.info("=== CHAT LIMIT EVENT === Received MAX_CHAT_COUNT update event: {} -> {}", 
-                event.getOldValue(), event.getNewValue());
-        
-        if (event.getNewValue() != null && event.getOldValue() != null) {
-            if (event.getNewValue() > event.getOldValue()) {
-                logger.info("=== CHAT LIMIT EVENT === Chat limit increased, checking for accounts to re-enable");
-                checkAndReEnableAccountsForNewLimit(event.getNewValue());
-            } else if (event.getNewValue() < event.getOldValue()) {
-                logger.info("=== CHAT LIMIT EVENT === Chat limit decreased, checking for accounts to disable");
-                checkAndDisableAccountsForLowerLimit(event.getNewValue());
-            } else {
-                logger.debug("=== CHAT LIMIT EVENT === Chat limit unchanged, no action needed");
-            }
-        } else {
-            logger.debug("=== CHAT LIMIT EVENT === Missing old or new value, no action taken");
-        }
-    }
 }
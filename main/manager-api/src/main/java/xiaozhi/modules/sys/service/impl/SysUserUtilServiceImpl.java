@@ -3,35 +3,72 @@ package xiaozhi.modules.sys.service.impl;
 import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Service;
 import xiaozhi.common.redis.RedisKeys;
-import xiaozhi.common.redis.RedisUtils;
+import xiaozhi.common.redis.RedisNearCache;
 import xiaozhi.common.service.impl.BaseServiceImpl;
 import xiaozhi.modules.sys.dao.SysUserDao;
 import xiaozhi.modules.sys.entity.SysUserEntity;
 import xiaozhi.modules.sys.service.SysUserUtilService;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.function.Consumer;
 
 @Service
 @AllArgsConstructor
 public class SysUserUtilServiceImpl extends BaseServiceImpl<SysUserDao, SysUserEntity> implements SysUserUtilService {
 
-    private RedisUtils redisUtils;
+    /**
+     * 用户名缓存时长，单位：秒
+     */
+    private static final long USERNAME_EXPIRE = 10L;
+
+    private RedisNearCache redisNearCache;
 
     @Override
     public void assignUsername(Long userId, Consumer<String> setter) {
         String userIdKey = RedisKeys.getUserIdKey(userId);
 
-        Object value = redisUtils.get(userIdKey);
-        String username = (value != null) ? value.toString() : null;
-        if(username != null){
-            setter.accept(username);
-        }else {
+        Object value = redisNearCache.getOrLoad(userIdKey, USERNAME_EXPIRE, USERNAME_EXPIRE, () -> {
             SysUserEntity entity = baseDao.selectById(userId);
-            if (entity != null) {
-                username = entity.getUsername();
-                redisUtils.set(userIdKey,username,10);
-                setter.accept(username);
+            return entity == null ? null : entity.getUsername();
+        });
+        if (value != null) {
+            setter.accept(value.toString());
+        }
+    }
+
+    @Override
+    public Map<Long, String> assignUsernames(Collection<Long> userIds) {
+        List<Long> ids = userIds.stream().filter(Objects::nonNull).distinct().toList();
+        Map<Long, String> usernames = new HashMap<>(ids.size());
+        if (ids.isEmpty()) {
+            return usernames;
+        }
+        List<Object> values = redisNearCache.multiGet(ids.stream().map(RedisKeys::getUserIdKey).toList(),
+                USERNAME_EXPIRE);
+        List<Long> missIds = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i++) {
+            if (values.get(i) != null) {
+                usernames.put(ids.get(i), values.get(i).toString());
+            } else {
+                missIds.add(ids.get(i));
             }
         }
+        if (missIds.isEmpty()) {
+            return usernames;
+        }
+        Map<String, Object> loaded = new HashMap<>(missIds.size());
+        for (SysUserEntity entity : baseDao.selectBatchIds(missIds)) {
+            usernames.put(entity.getId(), entity.getUsername());
+            loaded.put(RedisKeys.getUserIdKey(entity.getId()), entity.getUsername());
+        }
+        if (!loaded.isEmpty()) {
+            redisNearCache.multiPut(loaded, USERNAME_EXPIRE, USERNAME_EXPIRE);
+        }
+        return usernames;
     }
 }
@@ -0,0 +1,47 @@
+package xiaozhi.modules.sys.vo;
+
+import java.util.Date;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+/**
+ * Chat limit enforcement job view object
+ */
+@Data
+@Schema(description = "Progress of the background job applying a changed max_chat_count to all users")
+public class ChatLimitJobVO {
+
+    @Schema(description = "Job ID")
+    private String jobId;
+
+    @Schema(description = "DISABLE when the limit was lowered, RE_ENABLE when it was raised")
+    private String mode;
+
+    @Schema(description = "New max chat count")
+    private Integer maxChatCount;
+
+    @Schema(description = "RUNNING, COMPLETED, CANCELLED, FAILED, or INTERRUPTED when the running node stopped reporting progress")
+    private String status;
+
+    @Schema(description = "Users scanned so far")
+    private Long scannedUsers;
+
+    @Schema(description = "Users disabled or re-enabled so far")
+    private Long affectedUsers;
+
+    @Schema(description = "Last processed user ID")
+    private Long lastUserId;
+
+    @Schema(description = "Start time")
+    private Date startedAt;
+
+    @Schema(description = "Time of the last progress update")
+    private Date updatedAt;
+
+    @Schema(description = "Finish time")
+    private Date finishedAt;
+
+    @Schema(description = "Error message when failed")
+    private String error;
+}
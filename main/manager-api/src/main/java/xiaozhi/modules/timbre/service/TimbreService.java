@@ -1,6 +1,8 @@
 package xiaozhi.modules.timbre.service;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import xiaozhi.common.page.PageData;
 import xiaozhi.common.service.BaseService;
@@ -64,4 +66,12 @@ public interface TimbreService extends BaseService<TimbreEntity> {
      * @return 音色名称
      */
     String getTimbreNameById(String id);
+
+    /**
+     * 批量获取音色名称，缓存以一次MGET读取，未命中的以一条查询加载
+     * 
+     * @param ids 音色ID
+     * @return 音色ID到名称的映射，不存在的音色不包含在内
+     */
+    Map<String, String> getTimbreNamesByIds(Collection<String> ids);
 }
\ No newline at end of file
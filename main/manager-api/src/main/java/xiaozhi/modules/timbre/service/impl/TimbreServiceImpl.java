@@ -1,6 +1,8 @@
 package xiaozhi.modules.timbre.service.impl;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -17,9 +19,11 @@ import lombok.AllArgsConstructor;
 import xiaozhi.common.constant.Constant;
 import xiaozhi.common.page.PageData;
 import xiaozhi.common.redis.RedisKeys;
+import xiaozhi.common.redis.RedisNearCache;
 import xiaozhi.common.redis.RedisUtils;
 import xiaozhi.common.service.impl.BaseServiceImpl;
 import xiaozhi.common.utils.ConvertUtils;
+import xiaozhi.modules.config.cache.AgentConfigSnapshotCache;
 import xiaozhi.modules.model.dto.VoiceDTO;
 import xiaozhi.modules.timbre.dao.TimbreDao;
 import xiaozhi.modules.timbre.dto.TimbreDataDTO;
@@ -40,6 +44,8 @@ public class TimbreServiceImpl extends BaseServiceImpl<TimbreDao, TimbreEntity>
 
     private final TimbreDao timbreDao;
     private final RedisUtils redisUtils;
+    private final RedisNearCache redisNearCache;
+    private final AgentConfigSnapshotCache agentConfigSnapshotCache;
 
     @Override
     public PageData<TimbreDetailsVO> page(TimbrePageDTO dto) {
@@ -64,28 +70,16 @@ public class TimbreServiceImpl extends BaseServiceImpl<TimbreDao, TimbreEntity>
             return null;
         }
 
-        // 先从Redis获取缓存
+        // 先从缓存获取，没有则从数据库获取并存入缓存
         String key = RedisKeys.getTimbreDetailsKey(timbreId);
-        TimbreDetailsVO cachedDetails = (TimbreDetailsVO) redisUtils.get(key);
-        if (cachedDetails != null) {
-            return cachedDetails;
-        }
-
-        // 如果缓存中没有，则从数据库获取
-        TimbreEntity entity = baseDao.selectById(timbreId);
-        if (entity == null) {
-            return null;
-        }
-
-        // 转换为VO对象
-        TimbreDetailsVO details = ConvertUtils.sourceToTarget(entity, TimbreDetailsVO.class);
-
-        // 存入Redis缓存
-        if (details != null) {
-            redisUtils.set(key, details);
-        }
-
-        return details;
+        return redisNearCache.getOrLoad(key, () -> {
+            TimbreEntity entity = baseDao.selectById(timbreId);
+            if (entity == null) {
+                return null;
+            }
+            // 转换为VO对象
+            return ConvertUtils.sourceToTarget(entity, TimbreDetailsVO.class);
+        });
     }
 
     @Override
@@ -104,13 +98,18 @@ public class TimbreServiceImpl extends BaseServiceImpl<TimbreDao, TimbreEntity>
         timbreEntity.setId(timbreId);
         baseDao.updateById(timbreEntity);
         // 删除缓存
-        redisUtils.delete(RedisKeys.getTimbreDetailsKey(timbreId));
+        redisNearCache.delete(RedisKeys.getTimbreDetailsKey(timbreId));
+        agentConfigSnapshotCache.evictByTimbre(timbreId);
     }
 
     @Override
     @Transactional(rollbackFor = Exception.class)
     public void delete(String[] ids) {
         baseDao.deleteBatchIds(Arrays.asList(ids));
+        for (String id : ids) {
+            redisNearCache.delete(RedisKeys.getTimbreDetailsKey(id));
+            agentConfigSnapshotCache.evictByTimbre(id);
+        }
     }
 
     @Override
@@ -158,4 +157,38 @@ public class TimbreServiceImpl extends BaseServiceImpl<TimbreDao, TimbreEntity>
 
         return null;
     }
+
+    @Override
+    public Map<String, String> getTimbreNamesByIds(Collection<String> ids) {
+        List<String> distinctIds = ids.stream().filter(StringUtils::isNotBlank).distinct().toList();
+        Map<String, String> result = new HashMap<>();
+        if (distinctIds.isEmpty()) {
+            return result;
+        }
+        List<Object> cached = redisUtils.multiGet(distinctIds.stream().map(RedisKeys::getTimbreNameById).toList());
+        List<String> missIds = new ArrayList<>();
+        for (int i = 0; i < distinctIds.size(); i++) {
+            Object name = cached == null ? null : cached.get(i);
+            if (name instanceof String cachedName && StringUtils.isNotBlank(cachedName)) {
+                result.put(distinctIds.get(i), cachedName);
+            } else {
+                missIds.add(distinctIds.get(i));
+            }
+        }
+        if (missIds.isEmpty()) {
+            return result;
+        }
+        List<TimbreEntity> entities = timbreDao.selectList(new QueryWrapper<TimbreEntity>()
+                .select("id", "name")
+                .in("id", missIds));
+        Map<String, Object> loaded = new HashMap<>();
+        for (TimbreEntity entity : entities) {
+            if (StringUtils.isNotBlank(entity.getName())) {
+                result.put(entity.getId(), entity.getName());
+                loaded.put(RedisKeys.getTimbreNameById(entity.getId()), entity.getName());
+            }
+        }
+        redisUtils.multiSet(loaded, RedisUtils.DEFAULT_EXPIRE);
+        return result;
+    }
 }
\ No newline at end of file
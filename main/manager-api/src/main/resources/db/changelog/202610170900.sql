@@ -0,0 +1,2 @@
+-- 按设备和时间统计聊天次数的索引，用于初始化和重建用户月度聊天计数
+CREATE INDEX idx_ai_agent_chat_history_mac_created ON ai_agent_chat_history (mac_address, created_at);
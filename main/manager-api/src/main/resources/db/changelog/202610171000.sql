@@ -0,0 +1,4 @@
+-- 聊天音频改为文件存储，表中只保留存储Key
+ALTER TABLE ai_agent_chat_audio
+    ADD COLUMN storage_key VARCHAR(64) NULL COMMENT 'Audio store key (SHA-256 of content)' AFTER audio,
+    ADD COLUMN audio_size BIGINT NULL COMMENT 'Audio size in bytes' AFTER storage_key;
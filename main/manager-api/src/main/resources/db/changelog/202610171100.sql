@@ -0,0 +1,14 @@
+-- 按用户、智能体、日期汇总的聊天次数，由聊天上报增量维护，供管理端统计和聊天次数限制使用
+CREATE TABLE chat_daily_rollup (
+    day date NOT NULL COMMENT 'Chat date',
+    user_id bigint NOT NULL COMMENT 'Device owner at report time',
+    agent_id varchar(32) NOT NULL COMMENT 'Agent ID',
+    user_msgs int NOT NULL DEFAULT 0 COMMENT 'Messages sent by the user (chat_type=1)',
+    agent_msgs int NOT NULL DEFAULT 0 COMMENT 'Messages sent by the agent (chat_type=2)',
+    updated_at datetime NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT 'Update time',
+    PRIMARY KEY (day, user_id, agent_id),
+    INDEX idx_chat_daily_rollup_user_day (user_id, day)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='Daily chat message counts per user and agent';
+
+-- 按日期范围重建汇总时使用
+CREATE INDEX idx_ai_agent_chat_history_created ON ai_agent_chat_history (created_at);
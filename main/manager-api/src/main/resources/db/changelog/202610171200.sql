@@ -0,0 +1,2 @@
+-- 清理音频文件时按存储Key查询是否仍被引用
+CREATE INDEX idx_ai_agent_chat_audio_storage_key ON ai_agent_chat_audio (storage_key);
@@ -1 +0,0 @@
-redis.call('FLUSHALL')
\ No newline at end of file
@@ -0,0 +1,207 @@
+package xiaozhi.common.redis;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import cn.hutool.json.JSONObject;
+import lombok.extern.slf4j.Slf4j;
+import xiaozhi.modules.model.entity.ModelConfigEntity;
+import xiaozhi.modules.timbre.vo.TimbreDetailsVO;
+
+/**
+ * 对比JSON与紧凑格式在实际缓存内容上的存储字节数和序列化耗时，并验证新旧格式混读
+ */
+@Slf4j
+@DisplayName("Redis值序列化格式对比")
+public class CompactRedisSerializerBenchmarkTest {
+    private static final int WARMUP_ROUNDS = 2000;
+    private static final int ROUNDS = 20000;
+    private static final int COMPRESS_THRESHOLD = 1024;
+
+    @Test
+    @DisplayName("存储字节数与序列化耗时")
+    public void testBytesAndTime() {
+        RedisSerializer<Object> json = RedisSerializer.json();
+        CompactRedisSerializer compact = new CompactRedisSerializer(true, 0);
+        CompactRedisSerializer compressed = new CompactRedisSerializer(true, COMPRESS_THRESHOLD);
+
+        Map<String, Object> payloads = new LinkedHashMap<>();
+        payloads.put("modelConfig", modelConfig());
+        payloads.put("timbreDetails", timbreDetails());
+        payloads.put("agentConfigSnapshot", agentConfigSnapshot());
+        payloads.put("serverConfig", serverConfig());
+
+        for (Map.Entry<String, Object> entry : payloads.entrySet()) {
+            Object value = entry.getValue();
+            Measure jsonMeasure = measure(json, value);
+            Measure compactMeasure = measure(compact, value);
+            Measure compressedMeasure = measure(compressed, value);
+            log.info("{}: json={}B ser={}ns deser={}ns | smile={}B ser={}ns deser={}ns | smile+deflate={}B ser={}ns "
+                    + "deser={}ns", entry.getKey(),
+                    jsonMeasure.bytes, jsonMeasure.serNanos, jsonMeasure.deserNanos,
+                    compactMeasure.bytes, compactMeasure.serNanos, compactMeasure.deserNanos,
+                    compressedMeasure.bytes, compressedMeasure.serNanos, compressedMeasure.deserNanos);
+
+            Assertions.assertTrue(compactMeasure.bytes < jsonMeasure.bytes);
+            Assertions.assertTrue(compressedMeasure.bytes <= compactMeasure.bytes);
+        }
+    }
+
+    @Test
+    @DisplayName("新旧格式混读")
+    public void testMixedFormatRead() {
+        RedisSerializer<Object> json = RedisSerializer.json();
+        CompactRedisSerializer jsonWriter = new CompactRedisSerializer(false, COMPRESS_THRESHOLD);
+        CompactRedisSerializer compactWriter = new CompactRedisSerializer(true, COMPRESS_THRESHOLD);
+
+        for (Object value : List.of(modelConfig(), timbreDetails(), agentConfigSnapshot(), serverConfig())) {
+            byte[] legacy = json.serialize(value);
+            byte[] compact = compactWriter.serialize(value);
+            // 切换前写入的JSON值，新版本两种配置都能读取
+            Assertions.assertEquals(value, compactWriter.deserialize(legacy));
+            Assertions.assertEquals(value, jsonWriter.deserialize(legacy));
+            // 切换后写入的紧凑值，回退为json配置时仍能读取
+            Assertions.assertEquals(value, jsonWriter.deserialize(compact));
+            Assertions.assertArrayEquals(legacy, jsonWriter.serialize(value));
+        }
+
+        // 标量保持JSON文本，INCR和Lua脚本不受影响
+        Assertions.assertEquals("42", new String(compactWriter.serialize(42), StandardCharsets.UTF_8));
+        Assertions.assertArrayEquals(json.serialize("abc"), compactWriter.serialize("abc"));
+        Assertions.assertNull(compactWriter.deserialize(new byte[0]));
+    }
+
+    private Measure measure(RedisSerializer<Object> serializer, Object value) {
+        byte[] bytes = null;
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            bytes = serializer.serialize(value);
+            serializer.deserialize(bytes);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            bytes = serializer.serialize(value);
+        }
+        long serNanos = (System.nanoTime() - start) / ROUNDS;
+        start = System.nanoTime();
+        Object result = null;
+        for (int i = 0; i < ROUNDS; i++) {
+            result = serializer.deserialize(bytes);
+        }
+        long deserNanos = (System.nanoTime() - start) / ROUNDS;
+        Assertions.assertEquals(value, result);
+        return new Measure(bytes.length, serNanos, deserNanos);
+    }
+
+    private record Measure(int bytes, long serNanos, long deserNanos) {
+    }
+
+    private static ModelConfigEntity modelConfig() {
+        JSONObject config = new JSONObject();
+        config.set("type", "openai");
+        config.set("model_name", "qwen-plus");
+        config.set("base_url", "https://dashscope.aliyuncs.com/compatible-mode/v1");
+        config.set("api_key", "sk-0123456789abcdef0123456789abcdef");
+        config.set("temperature", "0.7");
+        config.set("max_tokens", "500");
+        config.set("top_p", "1");
+        config.set("frequency_penalty", "0");
+
+        ModelConfigEntity entity = new ModelConfigEntity();
+        entity.setId("LLM_AliLLM");
+        entity.setModelType("LLM");
+        entity.setModelCode("AliLLM");
+        entity.setModelName("通义千问");
+        entity.setIsDefault(0);
+        entity.setIsEnabled(1);
+        entity.setConfigJson(config);
+        entity.setDocLink("https://bailian.console.aliyun.com/?apiKey=1#/api-key");
+        entity.setRemark("通义千问大模型，兼容OpenAI接口");
+        entity.setSort(2);
+        entity.setCreator(1L);
+        entity.setCreateDate(new Date(1760000000000L));
+        return entity;
+    }
+
+    private static TimbreDetailsVO timbreDetails() {
+        TimbreDetailsVO vo = new TimbreDetailsVO();
+        vo.setId("TTS_EdgeTTS0001");
+        vo.setLanguages("普通话");
+        vo.setName("EdgeTTS女声-晓晓");
+        vo.setRemark("");
+        vo.setSort(1);
+        vo.setTtsModelId("TTS_EdgeTTS");
+        vo.setTtsVoice("zh-CN-XiaoxiaoNeural");
+        vo.setVoiceDemo("https://example.com/voice/xiaoxiao.mp3");
+        return vo;
+    }
+
+    private static Map<String, Object> agentConfigSnapshot() {
+        Map<String, Object> snapshot = new HashMap<>();
+        Map<String, Object> selected = new HashMap<>();
+        String[] types = { "VAD", "ASR", "LLM", "VLLM", "TTS", "Memory", "Intent" };
+        for (String type : types) {
+            String id = type + "_Default";
+            selected.put(type, id);
+            Map<String, Object> module = new HashMap<>();
+            module.put("type", type.toLowerCase());
+            module.put("model_name", type.toLowerCase() + "-model");
+            module.put("base_url", "https://api.example.com/" + type.toLowerCase() + "/v1");
+            module.put("api_key", "sk-0123456789abcdef0123456789abcdef");
+            module.put("output_dir", "tmp/");
+            Map<String, Object> wrapper = new HashMap<>();
+            wrapper.put(id, module);
+            snapshot.put(type, wrapper);
+        }
+        snapshot.put("selected_module", selected);
+        StringBuilder prompt = new StringBuilder();
+        for (int i = 0; i < 12; i++) {
+            prompt.append("你是一个叫小智的台湾女孩，说话机车，声音好听，习惯简短表达，爱用网络梗。");
+        }
+        snapshot.put("prompt", prompt.toString());
+        snapshot.put("summaryMemory", "用户喜欢听周杰伦的歌，住在深圳，最近在学习英语口语。");
+        snapshot.put("device_max_output_size", "0");
+        snapshot.put("chat_history_conf", 2);
+        List<Map<String, Object>> plugins = new ArrayList<>();
+        for (String plugin : new String[] { "get_weather", "get_news_from_newsnow", "play_music" }) {
+            Map<String, Object> item = new HashMap<>();
+            item.put("name", plugin);
+            item.put("enabled", Boolean.TRUE);
+            plugins.add(item);
+        }
+        snapshot.put("plugins", plugins);
+        return snapshot;
+    }
+
+    private static Map<String, Object> serverConfig() {
+        Map<String, Object> config = new HashMap<>();
+        Map<String, Object> server = new HashMap<>();
+        server.put("ip", "0.0.0.0");
+        server.put("port", "8000");
+        server.put("http_port", "8003");
+        server.put("websocket", "ws://127.0.0.1:8000/xiaozhi/v1/");
+        server.put("vision_explain", "http://127.0.0.1:8003/mcp/vision/explain");
+        server.put("auth_key", "5f6d4c3b2a1908f7e6d5c4b3a2918070");
+        config.put("server", server);
+        Map<String, Object> log = new HashMap<>();
+        log.put("log_level", "INFO");
+        log.put("log_dir", "tmp");
+        log.put("log_file", "server.log");
+        config.put("log", log);
+        config.put("delete_audio", "true");
+        config.put("close_connection_no_voice_time", "120");
+        config.put("enable_wakeup_words_response_cache", "true");
+        config.put("wakeup_words", "你好小智;嘿你好呀;你好小志;小爱同学;你好小鑫;你好小新;小美同学;小龙小龙;喵喵同学");
+        config.put("exit_commands", "退出;关闭");
+        return config;
+    }
+}
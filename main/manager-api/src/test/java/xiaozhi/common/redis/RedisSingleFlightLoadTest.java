@@ -0,0 +1,141 @@
+package xiaozhi.common.redis;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 模拟Redis被清空后多节点冷启动：每个节点大量线程同时读取同一批热点Key，
+ * 对比直接查库与合并加载时的数据库查询次数和QPS
+ */
+@Slf4j
+@DisplayName("缓存未命中合并加载压测")
+public class RedisSingleFlightLoadTest {
+    private static final int NODES = 3;
+    private static final int THREADS_PER_NODE = 100;
+    private static final int KEYS = 50;
+    /**
+     * 模拟一次数据库查询的耗时，单位：毫秒
+     */
+    private static final long DB_LATENCY_MS = 20;
+
+    @Test
+    @DisplayName("冷启动时的数据库QPS")
+    public void testColdStartDbQps() throws Exception {
+        Result baseline = run(false);
+        Result coalesced = run(true);
+
+        log.info("Cold start without single-flight: dbQueries={}, elapsed={}ms, dbQps={}",
+                baseline.dbQueries, baseline.elapsedMs, baseline.dbQps());
+        log.info("Cold start with single-flight:    dbQueries={}, elapsed={}ms, dbQps={}",
+                coalesced.dbQueries, coalesced.elapsedMs, coalesced.dbQps());
+
+        // 每个Key在所有节点上只加载一次
+        Assertions.assertEquals(KEYS, coalesced.dbQueries);
+        Assertions.assertTrue(baseline.dbQueries > coalesced.dbQueries);
+    }
+
+    private Result run(boolean singleFlight) throws Exception {
+        FakeRedisUtils redis = new FakeRedisUtils();
+        AtomicInteger dbQueries = new AtomicInteger();
+        List<RedisSingleFlight> nodes = new ArrayList<>();
+        for (int i = 0; i < NODES; i++) {
+            nodes.add(new RedisSingleFlight(redis));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(NODES * THREADS_PER_NODE);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (RedisSingleFlight node : nodes) {
+            for (int t = 0; t < THREADS_PER_NODE; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    // 所有线程按相同顺序读取，模拟设备同时上线
+                    for (int k = 0; k < KEYS; k++) {
+                        String key = "model:data:" + k;
+                        Object value = redis.get(key);
+                        if (value != null) {
+                            continue;
+                        }
+                        Supplier<Object> dbLoader = () -> {
+                            dbQueries.incrementAndGet();
+                            sleep(DB_LATENCY_MS);
+                            return "value-" + key;
+                        };
+                        if (singleFlight) {
+                            value = node.load(key, () -> redis.get(key), dbLoader, v -> redis.set(key, v));
+                        } else {
+                            value = dbLoader.get();
+                            redis.set(key, value);
+                        }
+                        Assertions.assertEquals("value-" + key, value);
+                    }
+                    return null;
+                }));
+            }
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long elapsedMs = (System.nanoTime() - begin) / 1_000_000;
+        executor.shutdown();
+        return new Result(dbQueries.get(), elapsedMs);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record Result(int dbQueries, long elapsedMs) {
+        long dbQps() {
+            return elapsedMs == 0 ? dbQueries : dbQueries * 1000L / elapsedMs;
+        }
+    }
+
+    /**
+     * 以内存Map模拟多个节点共享的Redis
+     */
+    private static class FakeRedisUtils extends RedisUtils {
+        private final Map<String, Object> store = new ConcurrentHashMap<>();
+
+        @Override
+        public Boolean setIfAbsent(String key, Object value, long expire) {
+            return store.putIfAbsent(key, value) == null;
+        }
+
+        @Override
+        public void set(String key, Object value) {
+            store.put(key, value);
+        }
+
+        @Override
+        public Object get(String key) {
+            return store.get(key);
+        }
+
+        @Override
+        public void delete(String key) {
+            store.remove(key);
+        }
+    }
+}
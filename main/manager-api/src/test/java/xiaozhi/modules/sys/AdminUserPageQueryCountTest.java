@@ -0,0 +1,121 @@
+package xiaozhi.modules.sys;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+
+import xiaozhi.common.page.PageData;
+import xiaozhi.modules.agent.service.AgentService;
+import xiaozhi.modules.device.service.DeviceService;
+import xiaozhi.modules.security.oauth2.Oauth2TokenCache;
+import xiaozhi.modules.sys.dao.SysUserDao;
+import xiaozhi.modules.sys.dao.UserPremiumSubscriptionDao;
+import xiaozhi.modules.sys.dto.AdminPageUserDTO;
+import xiaozhi.modules.sys.entity.SysUserEntity;
+import xiaozhi.modules.sys.service.SysParamsService;
+import xiaozhi.modules.sys.service.impl.SysUserServiceImpl;
+import xiaozhi.modules.sys.vo.AdminPageUserVO;
+
+/**
+ * 管理端用户分页的查询次数不随每页行数增长：分页查询一次，设备数量和高级订阅状态各批量查询一次
+ */
+@DisplayName("管理端用户分页查询次数")
+public class AdminUserPageQueryCountTest {
+
+    @Test
+    @DisplayName("每页查询次数固定")
+    public void testStatementCountPerPage() {
+        Assertions.assertEquals(3, statementCount(10));
+        Assertions.assertEquals(3, statementCount(100));
+    }
+
+    @Test
+    @DisplayName("空页不做批量查询")
+    public void testEmptyPage() {
+        Assertions.assertEquals(1, statementCount(0));
+    }
+
+    @Test
+    @DisplayName("批量结果正确映射到每一行")
+    public void testRowMapping() {
+        Fixture fixture = new Fixture(3);
+        Mockito.when(fixture.deviceService.selectCountByUserIds(ArgumentMatchers.anyCollection()))
+                .thenReturn(Map.of(1L, 2L));
+        Mockito.when(fixture.premiumDao.getActiveSubscriptionUserIds(ArgumentMatchers.anyCollection()))
+                .thenReturn(List.of(3L));
+
+        List<AdminPageUserVO> list = fixture.page().getList();
+        Assertions.assertEquals(List.of("2", "0", "0"), list.stream().map(AdminPageUserVO::getDeviceCount).toList());
+        Assertions.assertEquals(List.of(false, false, true), list.stream().map(AdminPageUserVO::getIsPremium).toList());
+    }
+
+    private int statementCount(int rows) {
+        Fixture fixture = new Fixture(rows);
+        PageData<AdminPageUserVO> page = fixture.page();
+        Assertions.assertEquals(rows, page.getList().size());
+
+        Mockito.verify(fixture.deviceService, Mockito.never()).selectCountByUserId(ArgumentMatchers.any());
+        Mockito.verify(fixture.premiumDao, Mockito.never()).getActiveSubscriptionByUserId(ArgumentMatchers.any());
+        // 每次DAO调用对应一条SQL，设备数量通过一次分组查询获取
+        return Mockito.mockingDetails(fixture.userDao).getInvocations().size()
+                + Mockito.mockingDetails(fixture.premiumDao).getInvocations().size()
+                + Mockito.mockingDetails(fixture.deviceService).getInvocations().size();
+    }
+
+    private static class Fixture {
+        private final SysUserDao userDao = Mockito.mock(SysUserDao.class);
+        private final UserPremiumSubscriptionDao premiumDao = Mockito.mock(UserPremiumSubscriptionDao.class);
+        private final DeviceService deviceService = Mockito.mock(DeviceService.class);
+        private final SysUserServiceImpl service;
+
+        @SuppressWarnings("unchecked")
+        private Fixture(int rows) {
+            List<SysUserEntity> users = new ArrayList<>();
+            for (long i = 1; i <= rows; i++) {
+                SysUserEntity user = new SysUserEntity();
+                user.setId(i);
+                user.setUsername("user" + i);
+                user.setStatus(1);
+                users.add(user);
+            }
+            Mockito.when(userDao.selectPage(ArgumentMatchers.any(), ArgumentMatchers.any())).thenAnswer(invocation -> {
+                Page<SysUserEntity> page = invocation.getArgument(0);
+                page.setRecords(users);
+                page.setTotal(rows);
+                return page;
+            });
+            Mockito.when(deviceService.selectCountByUserIds(ArgumentMatchers.anyCollection()))
+                    .thenAnswer(invocation -> {
+                        Map<Long, Long> counts = new HashMap<>();
+                        for (Long userId : (Collection<Long>) invocation.getArgument(0)) {
+                            counts.put(userId, 1L);
+                        }
+                        return counts;
+                    });
+            Mockito.when(premiumDao.getActiveSubscriptionUserIds(ArgumentMatchers.anyCollection()))
+                    .thenReturn(List.of());
+
+            service = new SysUserServiceImpl(userDao, premiumDao, deviceService, Mockito.mock(AgentService.class),
+                    Mockito.mock(SysParamsService.class), Mockito.mock(Oauth2TokenCache.class));
+            ReflectionTestUtils.setField(service, "baseDao", userDao);
+        }
+
+        private PageData<AdminPageUserVO> page() {
+            AdminPageUserDTO dto = new AdminPageUserDTO();
+            dto.setPage("1");
+            dto.setLimit("100");
+            return service.page(dto);
+        }
+    }
+}